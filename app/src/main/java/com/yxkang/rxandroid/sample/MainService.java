@@ -7,9 +7,7 @@ import android.os.IBinder;
 import android.util.Log;
 
 import com.yxkang.rxandroid.RxEventBus;
-
-import rx.Subscription;
-import rx.functions.Action1;
+import com.yxkang.rxandroid.Subscribe;
 
 public class MainService extends Service {
 
@@ -38,20 +36,17 @@ public class MainService extends Service {
     }
 
     private void register() {
-        Subscription subscription = RxEventBus.getInstance().ofType(TestEvent.class).subscribe(new Action1<TestEvent>() {
-            @Override
-            public void call(TestEvent testEvent) {
-                Log.i(TAG, "call: Thread = " + Thread.currentThread().getName() + " value =  " + testEvent.getValue());
-            }
-        });
-        RxEventBus.getInstance().subscribe(this, subscription);
-        subscription = RxEventBus.getInstance().ofType(MessageEvent.class).subscribe(new Action1<MessageEvent>() {
-            @Override
-            public void call(MessageEvent messageEvent) {
-                Log.i(TAG, "call: Thread = " + Thread.currentThread().getName() + " msg =  " + messageEvent.getMessage());
-            }
-        });
-        RxEventBus.getInstance().subscribe(this, subscription);
+        RxEventBus.getInstance().register(this);
+    }
+
+    @Subscribe
+    void onTestEvent(TestEvent testEvent) {
+        Log.i(TAG, "onTestEvent: Thread = " + Thread.currentThread().getName() + " value =  " + testEvent.getValue());
+    }
+
+    @Subscribe
+    void onMessageEvent(MessageEvent messageEvent) {
+        Log.i(TAG, "onMessageEvent: Thread = " + Thread.currentThread().getName() + " msg =  " + messageEvent.getMessage());
     }
 
     @Override
@@ -0,0 +1,15 @@
+package com.yxkang.rxandroid.sample;
+
+import android.app.Application;
+
+import com.yxkang.rxandroid.RxEventBus;
+
+public class SampleApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // SampleEventBusIndex is generated by eventbus-compiler, see app/build.gradle
+        RxEventBus.getInstance().addIndex(new SampleEventBusIndex());
+    }
+}
@@ -0,0 +1,75 @@
+package com.yxkang.rxandroid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+
+/**
+ * <h1>ChannelBenchmark</h1>
+ * throughput of an int value posted in the posting thread, through {@link IntChannel} and as a boxed event
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChannelBenchmark {
+
+    @Param({"1", "10"})
+    public int listeners;
+
+    private final Object mOwner = new Object();
+    private RxEventBus mBus;
+    private IntChannel mChannel;
+    private int mValue;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        mBus = RxEventBus.getInstance();
+        mChannel = mBus.intChannel("benchmark");
+        for (int i = 0; i < listeners; i++) {
+            mBus.subscribe(mOwner, mChannel.addListener(new IntChannel.Listener() {
+                @Override
+                public void onValue(int value) {
+                    blackhole.consume(value);
+                }
+            }));
+            mBus.subscribe(mOwner, mBus.ofType(Integer.class).subscribe(new Action1<Integer>() {
+                @Override
+                public void call(Integer value) {
+                    blackhole.consume(value.intValue());
+                }
+            }));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mBus.unsubscribe(mOwner);
+    }
+
+    @Benchmark
+    public void channel() {
+        mChannel.post(mValue++ & 0xFFFF, false);
+    }
+
+    @Benchmark
+    public void boxed() {
+        mBus.post(mValue++ & 0xFFFF, false);
+    }
+}
@@ -0,0 +1,61 @@
+package com.yxkang.rxandroid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+import rx.subjects.Subject;
+
+/**
+ * <h1>ContentionBenchmark</h1>
+ * throughput of many threads emitting to one subject at the same time, the synchronized emitter loop of
+ * {@link SerializedSubject} against the lock-free drain of {@link MpscSubject} which backs the bus.
+ * it runs with 4 posting threads, pass {@code -t} to the jmh jar to try other counts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+    @Param({"serialized", "mpsc"})
+    public String subject;
+
+    private final Object mEvent = new Object();
+    private Subject<Object, Object> mSubject;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        PublishSubject<Object> actual = PublishSubject.create();
+        mSubject = "mpsc".equals(subject) ? new MpscSubject<>(actual) : new SerializedSubject<>(actual);
+        mSubject.subscribe(new Action1<Object>() {
+            @Override
+            public void call(Object o) {
+                blackhole.consume(o);
+            }
+        });
+    }
+
+    @Benchmark
+    public void onNext() {
+        mSubject.onNext(mEvent);
+    }
+}
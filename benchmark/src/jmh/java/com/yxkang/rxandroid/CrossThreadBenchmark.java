@@ -0,0 +1,87 @@
+package com.yxkang.rxandroid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+
+/**
+ * <h1>CrossThreadBenchmark</h1>
+ * latency from {@link RxEventBus#post(Object)} in a background thread until a burst of events is delivered
+ * in main thread, the main thread is the JVM stand-in of {@code android.os.Looper} for {@code looper},
+ * and a single thread executor for {@code executor}
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrossThreadBenchmark {
+
+    @Param({"1", "100"})
+    public int burst;
+
+    @Param({"looper", "executor"})
+    public String dispatcher;
+
+    private final Object mOwner = new Object();
+    private final CrossThreadEvent mEvent = new CrossThreadEvent();
+    private volatile long mDelivered;
+    private RxEventBus mBus;
+    private ExecutorService mExecutor;
+
+    @Setup
+    public void setup() {
+        if ("executor".equals(dispatcher)) {
+            mExecutor = Executors.newSingleThreadExecutor();
+            mBus = new RxEventBus(new ExecutorDispatcher(mExecutor));
+        } else {
+            mBus = RxEventBus.getInstance();
+        }
+        mBus.subscribe(mOwner, mBus.ofType(CrossThreadEvent.class).subscribe(new Action1<CrossThreadEvent>() {
+            @Override
+            public void call(CrossThreadEvent crossThreadEvent) {
+                // only written by the main looper
+                mDelivered = mDelivered + 1;
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mBus.unsubscribe(mOwner);
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long postThenDeliver() {
+        long expected = mDelivered + burst;
+        for (int i = 0; i < burst; i++) {
+            mBus.post(mEvent);
+        }
+        while (mDelivered < expected) {
+            Thread.yield();
+        }
+        return expected;
+    }
+
+    static final class CrossThreadEvent {
+    }
+}
@@ -0,0 +1,58 @@
+package com.yxkang.rxandroid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import rx.Subscription;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * <h1>FairLockRegistry</h1>
+ * the subscriber registry {@link RxEventBus} used before {@link SubscriberRegistry},
+ * a {@link HashMap} guarded by a fair {@link ReentrantLock}. kept as the baseline of {@link SubscriberRegistryBenchmark}
+ */
+final class FairLockRegistry {
+
+    private final Map<Object, CompositeSubscription> mMap = new HashMap<>();
+    private final ReentrantLock mReentrantLock = new ReentrantLock(true);
+
+    void add(Object subscriber, Subscription subscription) {
+        mReentrantLock.lock();
+        try {
+            CompositeSubscription list = mMap.get(subscriber);
+            if (list == null) {
+                list = Subscriptions.from(subscription);
+                mMap.put(subscriber, list);
+            } else {
+                list.add(subscription);
+            }
+        } finally {
+            mReentrantLock.unlock();
+        }
+    }
+
+    void remove(Object subscriber) {
+        mReentrantLock.lock();
+        try {
+            CompositeSubscription list = mMap.get(subscriber);
+            if (list != null) {
+                list.unsubscribe();
+                mMap.remove(subscriber);
+            }
+        } finally {
+            mReentrantLock.unlock();
+        }
+    }
+
+    boolean isUnsubscribed(Object subscriber) {
+        mReentrantLock.lock();
+        try {
+            CompositeSubscription list = mMap.get(subscriber);
+            return list == null || list.isUnsubscribed();
+        } finally {
+            mReentrantLock.unlock();
+        }
+    }
+}
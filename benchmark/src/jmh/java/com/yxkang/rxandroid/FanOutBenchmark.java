@@ -0,0 +1,100 @@
+package com.yxkang.rxandroid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+import rx.subjects.Subject;
+
+/**
+ * <h1>FanOutBenchmark</h1>
+ * cost of posting one event while the subscribers of many other event types are registered,
+ * {@code bus} uses the per-type subjects of {@link RxEventBus}, {@code singleSubject} is the baseline
+ * of one subject filtered by {@link rx.Observable#ofType(Class)} for every subscriber
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+    private static final Class<?>[] OTHER_TYPES = {
+            BigDecimal.class, BigInteger.class, Date.class, UUID.class, ArrayList.class, LinkedList.class,
+            HashMap.class, TreeMap.class, HashSet.class, TreeSet.class, StringBuilder.class, StringBuffer.class,
+            Thread.class, ThreadGroup.class, Exception.class, Error.class
+    };
+    private static final int SUBSCRIBERS_PER_TYPE = 4;
+
+    @Param({"1", "4", "16"})
+    public int types;
+
+    private final Object mOwner = new Object();
+    private final FanOutEvent mEvent = new FanOutEvent();
+    private RxEventBus mBus;
+    private Subject<Object, Object> mSingleSubject;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        mBus = RxEventBus.getInstance();
+        mSingleSubject = new SerializedSubject<>(PublishSubject.create());
+        Action1<Object> action = new Action1<Object>() {
+            @Override
+            public void call(Object o) {
+                blackhole.consume(o);
+            }
+        };
+        for (int i = 0; i < types; i++) {
+            for (int j = 0; j < SUBSCRIBERS_PER_TYPE; j++) {
+                mBus.subscribe(mOwner, mBus.ofType(OTHER_TYPES[i]).subscribe(action));
+                mBus.subscribe(mOwner, mSingleSubject.ofType(OTHER_TYPES[i]).subscribe(action));
+            }
+        }
+        mBus.subscribe(mOwner, mBus.ofType(FanOutEvent.class).subscribe(action));
+        mBus.subscribe(mOwner, mSingleSubject.ofType(FanOutEvent.class).subscribe(action));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mBus.unsubscribe(mOwner);
+    }
+
+    @Benchmark
+    public void bus() {
+        mBus.post(mEvent, false);
+    }
+
+    @Benchmark
+    public void singleSubject() {
+        mSingleSubject.onNext(mEvent);
+    }
+
+    static final class FanOutEvent {
+    }
+}
@@ -0,0 +1,65 @@
+package com.yxkang.rxandroid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+
+/**
+ * <h1>PostBenchmark</h1>
+ * throughput of {@link RxEventBus#post(Object, boolean)} in the posting thread as the subscribers of the event grow
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int subscribers;
+
+    private final Object mOwner = new Object();
+    private final PostEvent mEvent = new PostEvent();
+    private RxEventBus mBus;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        mBus = RxEventBus.getInstance();
+        for (int i = 0; i < subscribers; i++) {
+            mBus.subscribe(mOwner, mBus.ofType(PostEvent.class).subscribe(new Action1<PostEvent>() {
+                @Override
+                public void call(PostEvent postEvent) {
+                    blackhole.consume(postEvent);
+                }
+            }));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mBus.unsubscribe(mOwner);
+    }
+
+    @Benchmark
+    public void post() {
+        mBus.post(mEvent, false);
+    }
+
+    static final class PostEvent {
+    }
+}
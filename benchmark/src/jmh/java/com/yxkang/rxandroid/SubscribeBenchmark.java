@@ -0,0 +1,47 @@
+package com.yxkang.rxandroid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Actions;
+
+/**
+ * <h1>SubscribeBenchmark</h1>
+ * contended subscribe/unsubscribe through the public api of {@link RxEventBus}, every thread
+ * subscribes its own subscriber to an event type, then unsubscribes it
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class SubscribeBenchmark {
+
+    @State(Scope.Thread)
+    public static class Subscriber {
+
+        final Object mSubscriber = new Object();
+    }
+
+    @Benchmark
+    public boolean subscribeUnsubscribe(Subscriber subscriber) {
+        RxEventBus bus = RxEventBus.getInstance();
+        bus.subscribe(subscriber.mSubscriber, bus.ofType(SubscribeEvent.class).subscribe(Actions.empty()));
+        bus.unsubscribe(subscriber.mSubscriber);
+        return bus.isUnsubscribed(subscriber.mSubscriber);
+    }
+
+    static final class SubscribeEvent {
+    }
+}
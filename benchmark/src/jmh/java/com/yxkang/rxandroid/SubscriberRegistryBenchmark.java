@@ -0,0 +1,63 @@
+package com.yxkang.rxandroid;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.subscriptions.Subscriptions;
+
+/**
+ * <h1>SubscriberRegistryBenchmark</h1>
+ * contended subscribe/unsubscribe throughput of {@link SubscriberRegistry} against the fair lock baseline,
+ * every thread registers its own subscriber, queries it and unregisters it again
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class SubscriberRegistryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Registries {
+
+        final FairLockRegistry mFairLockRegistry = new FairLockRegistry();
+        final SubscriberRegistry mSubscriberRegistry = new SubscriberRegistry();
+    }
+
+    @State(Scope.Thread)
+    public static class Subscriber {
+
+        final Object mSubscriber = new Object();
+    }
+
+    @Benchmark
+    public boolean fairLock(Registries registries, Subscriber subscriber) {
+        FairLockRegistry registry = registries.mFairLockRegistry;
+        registry.add(subscriber.mSubscriber, Subscriptions.empty());
+        registry.add(subscriber.mSubscriber, Subscriptions.empty());
+        boolean unsubscribed = registry.isUnsubscribed(subscriber.mSubscriber);
+        registry.remove(subscriber.mSubscriber);
+        return unsubscribed;
+    }
+
+    @Benchmark
+    public boolean lockFree(Registries registries, Subscriber subscriber) {
+        SubscriberRegistry registry = registries.mSubscriberRegistry;
+        registry.add(subscriber.mSubscriber, Subscriptions.empty());
+        registry.add(subscriber.mSubscriber, Subscriptions.empty());
+        boolean unsubscribed = registry.isUnsubscribed(subscriber.mSubscriber);
+        registry.remove(subscriber.mSubscriber);
+        return unsubscribed;
+    }
+}
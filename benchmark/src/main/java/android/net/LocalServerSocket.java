@@ -0,0 +1,23 @@
+package android.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * <h1>LocalServerSocket</h1>
+ * a stand-in of the android {@code LocalServerSocket} for compiling the eventbus library on a plain JVM, it can not listen
+ */
+public class LocalServerSocket implements Closeable {
+
+    public LocalServerSocket(String name) throws IOException {
+        throw new IOException("no local socket on the JVM: " + name);
+    }
+
+    public LocalSocket accept() throws IOException {
+        throw new IOException("not listening");
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
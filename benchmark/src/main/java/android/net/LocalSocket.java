@@ -0,0 +1,30 @@
+package android.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <h1>LocalSocket</h1>
+ * a stand-in of the android {@code LocalSocket} for compiling the eventbus library on a plain JVM,
+ * it can not connect, start an {@code EventBridge} with the streams of a unix domain socket channel instead
+ */
+public class LocalSocket implements Closeable {
+
+    public void connect(LocalSocketAddress endpoint) throws IOException {
+        throw new IOException("no local socket on the JVM: " + endpoint.getName());
+    }
+
+    public InputStream getInputStream() throws IOException {
+        throw new IOException("not connected");
+    }
+
+    public OutputStream getOutputStream() throws IOException {
+        throw new IOException("not connected");
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
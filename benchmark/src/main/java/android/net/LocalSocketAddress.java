@@ -0,0 +1,18 @@
+package android.net;
+
+/**
+ * <h1>LocalSocketAddress</h1>
+ * a stand-in of the android {@code LocalSocketAddress} for compiling the eventbus library on a plain JVM
+ */
+public class LocalSocketAddress {
+
+    private final String mName;
+
+    public LocalSocketAddress(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+}
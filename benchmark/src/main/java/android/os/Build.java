@@ -0,0 +1,19 @@
+package android.os;
+
+/**
+ * <h1>Build</h1>
+ * a stand-in of the android {@code Build} for running the eventbus library on a plain JVM
+ */
+public class Build {
+
+    public static class VERSION {
+
+        public static final int SDK_INT = 25;
+    }
+
+    public static class VERSION_CODES {
+
+        public static final int JELLY_BEAN = 16;
+        public static final int LOLLIPOP_MR1 = 22;
+    }
+}
@@ -0,0 +1,45 @@
+package android.os;
+
+/**
+ * <h1>Handler</h1>
+ * a stand-in of the android {@code Handler} for running the eventbus library on a plain JVM,
+ * delayed messages are not supported
+ */
+public class Handler {
+
+    private final Looper mLooper;
+
+    public Handler(Looper looper) {
+        mLooper = looper;
+    }
+
+    public void handleMessage(Message msg) {
+    }
+
+    public void dispatchMessage(Message msg) {
+        if (msg.callback != null) {
+            msg.callback.run();
+        } else {
+            handleMessage(msg);
+        }
+    }
+
+    public final Looper getLooper() {
+        return mLooper;
+    }
+
+    public final Message obtainMessage(int what) {
+        return Message.obtain(this, what);
+    }
+
+    public final boolean post(Runnable r) {
+        Message msg = Message.obtain();
+        msg.callback = r;
+        return sendMessage(msg);
+    }
+
+    public final boolean sendMessage(Message msg) {
+        msg.target = this;
+        return mLooper.mQueue.offer(msg);
+    }
+}
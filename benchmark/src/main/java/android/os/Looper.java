@@ -0,0 +1,101 @@
+package android.os;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <h1>Looper</h1>
+ * a stand-in of the android {@code Looper} for running the eventbus library on a plain JVM,
+ * the main looper is a daemon thread which is started on first use
+ */
+public final class Looper {
+
+    private static final ThreadLocal<Looper> sThreadLocal = new ThreadLocal<>();
+    private static volatile Looper sMainLooper;
+
+    final BlockingQueue<Message> mQueue = new LinkedBlockingQueue<>();
+    private final Thread mThread;
+    private volatile boolean mQuit;
+
+    private Looper() {
+        mThread = Thread.currentThread();
+    }
+
+    public static void prepare() {
+        if (sThreadLocal.get() != null) {
+            throw new RuntimeException("Only one Looper may be created per thread");
+        }
+        sThreadLocal.set(new Looper());
+    }
+
+    public static Looper myLooper() {
+        return sThreadLocal.get();
+    }
+
+    public static Looper getMainLooper() {
+        if (sMainLooper == null) {
+            synchronized (Looper.class) {
+                if (sMainLooper == null) {
+                    startMainLooper();
+                }
+            }
+        }
+        return sMainLooper;
+    }
+
+    private static void startMainLooper() {
+        final Object lock = new Object();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prepare();
+                synchronized (lock) {
+                    sMainLooper = myLooper();
+                    lock.notifyAll();
+                }
+                loop();
+            }
+        }, "main");
+        thread.setDaemon(true);
+        thread.start();
+        synchronized (lock) {
+            while (sMainLooper == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    public static void loop() {
+        Looper looper = myLooper();
+        if (looper == null) {
+            throw new RuntimeException("No Looper; Looper.prepare() wasn't called on this thread.");
+        }
+        while (!looper.mQuit) {
+            Message msg;
+            try {
+                msg = looper.mQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            msg.target.dispatchMessage(msg);
+        }
+    }
+
+    public Thread getThread() {
+        return mThread;
+    }
+
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    public void quit() {
+        mQuit = true;
+        mThread.interrupt();
+    }
+}
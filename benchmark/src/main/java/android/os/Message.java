@@ -0,0 +1,41 @@
+package android.os;
+
+/**
+ * <h1>Message</h1>
+ * a stand-in of the android {@code Message} for running the eventbus library on a plain JVM
+ */
+public final class Message {
+
+    public int what;
+    public int arg1;
+    public int arg2;
+    public Object obj;
+
+    Handler target;
+    Runnable callback;
+
+    public static Message obtain() {
+        return new Message();
+    }
+
+    public static Message obtain(Handler h, int what) {
+        Message m = obtain();
+        m.target = h;
+        m.what = what;
+        return m;
+    }
+
+    public static Message obtain(Handler h, Runnable callback) {
+        Message m = obtain();
+        m.target = h;
+        m.callback = callback;
+        return m;
+    }
+
+    public void setAsynchronous(boolean async) {
+    }
+
+    public void sendToTarget() {
+        target.sendMessage(this);
+    }
+}
@@ -0,0 +1,37 @@
+package android.util;
+
+/**
+ * <h1>Log</h1>
+ * a stand-in of the android {@code Log} for running the eventbus library on a plain JVM, only warnings and errors are printed
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        System.err.println("W/" + tag + ": " + msg);
+        return 0;
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        System.err.println("W/" + tag + ": " + msg);
+        tr.printStackTrace();
+        return 0;
+    }
+
+    public static int e(String tag, String msg) {
+        System.err.println("E/" + tag + ": " + msg);
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        System.err.println("E/" + tag + ": " + msg);
+        tr.printStackTrace();
+        return 0;
+    }
+}
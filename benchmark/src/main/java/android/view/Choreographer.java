@@ -0,0 +1,47 @@
+package android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * <h1>Choreographer</h1>
+ * a stand-in of the android {@code Choreographer} for running the eventbus library on a plain JVM,
+ * there is no vsync, a frame callback runs as the next message of the looper
+ */
+public final class Choreographer {
+
+    private static final ThreadLocal<Choreographer> sThreadInstance = new ThreadLocal<Choreographer>() {
+        @Override
+        protected Choreographer initialValue() {
+            Looper looper = Looper.myLooper();
+            if (looper == null) {
+                throw new IllegalStateException("The current thread must have a looper!");
+            }
+            return new Choreographer(looper);
+        }
+    };
+
+    private final Handler mHandler;
+
+    private Choreographer(Looper looper) {
+        mHandler = new Handler(looper);
+    }
+
+    public static Choreographer getInstance() {
+        return sThreadInstance.get();
+    }
+
+    public void postFrameCallback(final FrameCallback callback) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.doFrame(System.nanoTime());
+            }
+        });
+    }
+
+    public interface FrameCallback {
+
+        void doFrame(long frameTimeNanos);
+    }
+}
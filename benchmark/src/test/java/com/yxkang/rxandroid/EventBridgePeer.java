@@ -0,0 +1,148 @@
+package com.yxkang.rxandroid;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import rx.functions.Action1;
+
+/**
+ * <h1>EventBridgePeer</h1>
+ * the second process of {@link EventBridgeTest}, it connects to the socket given as the argument and answers every
+ * {@link Ping} with a {@link Pong}, then exits when the bridge is closed by the other process
+ */
+public class EventBridgePeer {
+
+    static final int PING = 1;
+    static final int PONG = 2;
+
+    public static void main(String[] args) throws Exception {
+        UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(new File(args[0])));
+        final RxEventBus bus = new RxEventBus(new ExecutorDispatcher());
+        EventBridge bridge = newBridge(bus);
+        bus.ofType(Ping.class).subscribe(new Action1<Ping>() {
+            @Override
+            public void call(Ping ping) {
+                bus.post(new Pong(ping.mSeq, ping.mText.length()));
+            }
+        });
+        bridge.start(new ChannelInputStream(channel), new ChannelOutputStream(channel));
+        while (!bridge.isClosed()) {
+            Thread.sleep(20);
+        }
+    }
+
+    static EventBridge newBridge(RxEventBus bus) {
+        return new EventBridge.Builder()
+                .bus(bus)
+                .register(PING, Ping.class, new EventCodec<Ping>() {
+                    @Override
+                    public void encode(Ping event, DataOutput out) throws IOException {
+                        out.writeInt(event.mSeq);
+                        out.writeUTF(event.mText);
+                    }
+
+                    @Override
+                    public Ping decode(DataInput in) throws IOException {
+                        return new Ping(in.readInt(), in.readUTF());
+                    }
+                })
+                .register(PONG, Pong.class, new EventCodec<Pong>() {
+                    @Override
+                    public void encode(Pong event, DataOutput out) throws IOException {
+                        out.writeInt(event.mSeq);
+                        out.writeInt(event.mLength);
+                    }
+
+                    @Override
+                    public Pong decode(DataInput in) throws IOException {
+                        return new Pong(in.readInt(), in.readInt());
+                    }
+                })
+                .build();
+    }
+
+    static final class Ping {
+
+        final int mSeq;
+        final String mText;
+
+        Ping(int seq, String text) {
+            mSeq = seq;
+            mText = text;
+        }
+    }
+
+    static final class Pong {
+
+        final int mSeq;
+        final int mLength;
+
+        Pong(int seq, int length) {
+            mSeq = seq;
+            mLength = length;
+        }
+    }
+
+    /**
+     * read the channel directly, {@code Channels.newInputStream} locks the channel while it blocks in a read,
+     * which would stall the writer thread of the bridge
+     */
+    static final class ChannelInputStream extends InputStream {
+
+        private final UnixSocketChannel mChannel;
+
+        ChannelInputStream(UnixSocketChannel channel) {
+            mChannel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return mChannel.read(ByteBuffer.wrap(b, off, len));
+        }
+
+        @Override
+        public void close() throws IOException {
+            mChannel.close();
+        }
+    }
+
+    static final class ChannelOutputStream extends OutputStream {
+
+        private final UnixSocketChannel mChannel;
+
+        ChannelOutputStream(UnixSocketChannel channel) {
+            mChannel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                mChannel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            mChannel.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * bridge two JVM processes over a unix domain socket, the other process is {@link EventBridgePeer}
+ */
+public class EventBridgeTest {
+
+    private static final int COUNT = 10000;
+
+    @Test(timeout = 60000)
+    public void pingPong() throws Exception {
+        File path = File.createTempFile("eventbridge", ".sock");
+        assertTrue(path.delete());
+        UnixServerSocketChannel server = UnixServerSocketChannel.open();
+        server.socket().bind(new UnixSocketAddress(path));
+        Process peer = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("eventbridge.classpath", System.getProperty("java.class.path")),
+                EventBridgePeer.class.getName(), path.getPath())
+                .inheritIO()
+                .start();
+        UnixSocketChannel channel = server.accept();
+
+        RxEventBus bus = new RxEventBus(new ExecutorDispatcher());
+        EventBridge bridge = EventBridgePeer.newBridge(bus);
+        final List<EventBridgePeer.Pong> pongs = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(COUNT);
+        bus.ofType(EventBridgePeer.Pong.class).subscribe(new Action1<EventBridgePeer.Pong>() {
+            @Override
+            public void call(EventBridgePeer.Pong pong) {
+                pongs.add(pong);
+                latch.countDown();
+            }
+        });
+        bridge.start(new EventBridgePeer.ChannelInputStream(channel), new EventBridgePeer.ChannelOutputStream(channel));
+        for (int i = 0; i < COUNT; i++) {
+            bus.post(new EventBridgePeer.Ping(i, "ping " + i));
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(i, pongs.get(i).mSeq);
+            assertEquals(("ping " + i).length(), pongs.get(i).mLength);
+        }
+        bridge.close();
+        assertEquals(0, peer.waitFor());
+        server.close();
+        assertTrue(!path.exists() || path.delete());
+    }
+}
@@ -0,0 +1,358 @@
+package com.yxkang.rxandroid.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * <h1>SubscribeProcessor</h1>
+ * generate a {@code SubscriberBinder} for every class which has {@code @Subscribe} methods, and a
+ * {@code SubscriberIndex} of all the binders named by the processor option {@value #OPTION_INDEX}.
+ * <p>The generated code calls the handlers directly, one binder and one handler class per subscriber class,
+ * and the index creates a binder only when it is asked for, so nothing is loaded before it is used.
+ * the handlers get the subscriber as an argument, so a bus in weak reference mode doesn't keep it alive</p>
+ */
+public class SubscribeProcessor extends AbstractProcessor {
+
+    static final String OPTION_INDEX = "rxEventBusIndex";
+
+    private static final String SUBSCRIBE = "com.yxkang.rxandroid.Subscribe";
+    private static final String BINDER_SUFFIX = "_SubscriberBinder";
+    private static final String THREAD_MODE = "threadMode";
+    private static final String THREAD_MODE_POSTING = "POSTING";
+
+    private Filer mFiler;
+    private Messager mMessager;
+    private Elements mElements;
+    private Types mTypes;
+
+    /**
+     * the binders generated in all rounds, binder name by subscriber class
+     */
+    private final Map<TypeElement, String> mBinders = new LinkedHashMap<>();
+    /**
+     * the index is written in the first round which generates binders, so the compiler still processes it
+     */
+    private boolean mIndexWritten;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mFiler = processingEnv.getFiler();
+        mMessager = processingEnv.getMessager();
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(SUBSCRIBE);
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_INDEX);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement subscribe = mElements.getTypeElement(SUBSCRIBE);
+        if (subscribe == null) {
+            return false;
+        }
+        Map<TypeElement, List<ExecutableElement>> classes = new LinkedHashMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(subscribe)) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+            TypeElement enclosing = (TypeElement) element.getEnclosingElement();
+            if (!classes.containsKey(enclosing)) {
+                classes.put(enclosing, collectMethods(enclosing));
+            }
+        }
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : classes.entrySet()) {
+            TypeElement subscriber = entry.getKey();
+            if (isValid(subscriber, entry.getValue())) {
+                writeBinder(subscriber, entry.getValue());
+            }
+        }
+        if (!mIndexWritten && !mBinders.isEmpty()) {
+            writeIndex();
+            mIndexWritten = true;
+        }
+        return true;
+    }
+
+    /**
+     * @return the {@code @Subscribe} methods of the class and its super classes, the overridden methods are skipped
+     */
+    private List<ExecutableElement> collectMethods(TypeElement subscriber) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (TypeElement clazz = subscriber; clazz != null; clazz = superclass(clazz)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(clazz.getEnclosedElements())) {
+                if (isSubscribe(method) && !isOverridden(method, methods, subscriber)) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    private TypeElement superclass(TypeElement clazz) {
+        TypeMirror superclass = clazz.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    private boolean isSubscribe(ExecutableElement method) {
+        return subscribe(method) != null;
+    }
+
+    private AnnotationMirror subscribe(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(SUBSCRIBE)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the name of the {@code ThreadMode} constant of the method
+     */
+    private String threadMode(ExecutableElement method) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = subscribe(method).getElementValues();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(THREAD_MODE)) {
+                return ((Element) entry.getValue().getValue()).getSimpleName().toString();
+            }
+        }
+        return THREAD_MODE_POSTING;
+    }
+
+    private boolean isOverridden(ExecutableElement method, List<ExecutableElement> methods, TypeElement subscriber) {
+        for (ExecutableElement override : methods) {
+            if (mElements.overrides(override, method, subscriber)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isValid(TypeElement subscriber, List<ExecutableElement> methods) {
+        boolean valid = true;
+        for (TypeElement clazz = subscriber; clazz.getNestingKind() == NestingKind.MEMBER;
+             clazz = (TypeElement) clazz.getEnclosingElement()) {
+            if (clazz.getModifiers().contains(Modifier.PRIVATE)) {
+                error(subscriber, "@Subscribe class must not be private: " + clazz.getQualifiedName());
+                valid = false;
+            }
+        }
+        if (subscriber.getNestingKind() == NestingKind.LOCAL || subscriber.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(subscriber, "@Subscribe methods are not supported in local or anonymous classes");
+            valid = false;
+        }
+        PackageElement pkg = mElements.getPackageOf(subscriber);
+        for (ExecutableElement method : methods) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+                error(method, "@Subscribe method must not be private or static");
+                valid = false;
+            } else if (!modifiers.contains(Modifier.PUBLIC) && !mElements.getPackageOf(method).equals(pkg)) {
+                error(method, "@Subscribe method of a super class in another package must be public");
+                valid = false;
+            }
+            if (method.getParameters().size() != 1) {
+                error(method, "@Subscribe method must have exactly one parameter");
+                valid = false;
+            } else if (method.getParameters().get(0).asType().getKind().isPrimitive()) {
+                error(method, "@Subscribe method parameter must not be a primitive type");
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private void writeBinder(TypeElement subscriber, List<ExecutableElement> methods) {
+        String pkg = mElements.getPackageOf(subscriber).getQualifiedName().toString();
+        String subscriberType = mTypes.erasure(subscriber.asType()).toString();
+        String binderName = binderName(subscriber);
+        StringBuilder builder = new StringBuilder();
+        builder.append("// Generated code from eventbus-compiler. Do not modify!\n");
+        if (!pkg.isEmpty()) {
+            builder.append("package ").append(pkg).append(";\n\n");
+        }
+        builder.append("import com.yxkang.rxandroid.RxEventBus;\n")
+                .append("import com.yxkang.rxandroid.SubscriberBinder;\n")
+                .append("import com.yxkang.rxandroid.ThreadMode;\n\n")
+                .append("import rx.functions.Action2;\n\n")
+                .append("@SuppressWarnings(\"unchecked\")\n")
+                .append("public final class ").append(binderName)
+                .append(" implements SubscriberBinder<").append(subscriberType).append("> {\n\n")
+                .append("    @Override\n")
+                .append("    public void bind(RxEventBus bus, ").append(subscriberType).append(" subscriber) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            String threadMode = threadMode(method);
+            builder.append("        bus.subscribe(subscriber, bus.ofType(").append(eventType(method)).append(".class");
+            if (!THREAD_MODE_POSTING.equals(threadMode)) {
+                builder.append(", ThreadMode.").append(threadMode);
+            }
+            builder.append("), new Handler(").append(i).append("));\n");
+        }
+        builder.append("    }\n\n")
+                .append("    private static final class Handler implements Action2<").append(subscriberType).append(", Object> {\n\n")
+                .append("        private final int mId;\n\n")
+                .append("        Handler(int id) {\n")
+                .append("            mId = id;\n")
+                .append("        }\n\n")
+                .append("        @Override\n")
+                .append("        public void call(").append(subscriberType).append(" subscriber, Object event) {\n")
+                .append("            switch (mId) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            builder.append("                case ").append(i).append(":\n")
+                    .append("                    subscriber.").append(method.getSimpleName())
+                    .append("((").append(eventType(method)).append(") event);\n")
+                    .append("                    break;\n");
+        }
+        builder.append("            }\n")
+                .append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+        String qualifiedName = pkg.isEmpty() ? binderName : pkg + "." + binderName;
+        if (write(qualifiedName, builder.toString(), subscriber)) {
+            mBinders.put(subscriber, qualifiedName);
+            if (mIndexWritten && processingEnv.getOptions().get(OPTION_INDEX) != null) {
+                mMessager.printMessage(Diagnostic.Kind.WARNING, "the subscriber index is written in an earlier round, "
+                        + subscriberType + " is not in it", subscriber);
+            }
+        }
+    }
+
+    private void writeIndex() {
+        String indexName = processingEnv.getOptions().get(OPTION_INDEX);
+        if (indexName == null) {
+            mMessager.printMessage(Diagnostic.Kind.WARNING, "no subscriber index is generated, set the processor option "
+                    + OPTION_INDEX + " to the qualified name of the index class");
+            return;
+        }
+        int dot = indexName.lastIndexOf('.');
+        String pkg = dot < 0 ? "" : indexName.substring(0, dot);
+        String simpleName = indexName.substring(dot + 1);
+        StringBuilder builder = new StringBuilder();
+        builder.append("// Generated code from eventbus-compiler. Do not modify!\n");
+        if (!pkg.isEmpty()) {
+            builder.append("package ").append(pkg).append(";\n\n");
+        }
+        builder.append("import com.yxkang.rxandroid.SubscriberBinder;\n")
+                .append("import com.yxkang.rxandroid.SubscriberIndex;\n\n")
+                .append("public final class ").append(simpleName).append(" implements SubscriberIndex {\n\n")
+                .append("    @Override\n")
+                .append("    public SubscriberBinder<?> getBinder(Class<?> subscriberClass) {\n");
+        for (Map.Entry<TypeElement, String> entry : mBinders.entrySet()) {
+            TypeElement subscriber = entry.getKey();
+            if (isAccessible(subscriber, pkg)) {
+                builder.append("        if (subscriberClass == ").append(mTypes.erasure(subscriber.asType())).append(".class) {\n");
+            } else {
+                // the index can't name a class which is not public in another package, but it can create its binder
+                builder.append("        if (\"").append(mElements.getBinaryName(subscriber))
+                        .append("\".equals(subscriberClass.getName())) {\n");
+            }
+            builder.append("            return new ").append(entry.getValue()).append("();\n")
+                    .append("        }\n");
+        }
+        builder.append("        return null;\n")
+                .append("    }\n")
+                .append("}\n");
+        write(indexName, builder.toString());
+    }
+
+    /**
+     * @return {@code true} if the class can be named by the code of the package
+     */
+    private boolean isAccessible(TypeElement subscriber, String pkg) {
+        if (mElements.getPackageOf(subscriber).getQualifiedName().contentEquals(pkg)) {
+            return true;
+        }
+        for (Element element = subscriber; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String eventType(ExecutableElement method) {
+        return mTypes.erasure(method.getParameters().get(0).asType()).toString();
+    }
+
+    /**
+     * {@code Outer.Inner} is bound by {@code Outer_Inner_SubscriberBinder}
+     */
+    private String binderName(TypeElement subscriber) {
+        String name = subscriber.getSimpleName().toString();
+        for (Element element = subscriber.getEnclosingElement(); element instanceof TypeElement;
+             element = element.getEnclosingElement()) {
+            name = element.getSimpleName() + "_" + name;
+        }
+        return name + BINDER_SUFFIX;
+    }
+
+    private boolean write(String qualifiedName, String source, Element... originatingElements) {
+        try {
+            JavaFileObject file = mFiler.createSourceFile(qualifiedName, originatingElements);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(source);
+            } finally {
+                writer.close();
+            }
+            return true;
+        } catch (IOException e) {
+            mMessager.printMessage(Diagnostic.Kind.ERROR, "unable to write " + qualifiedName + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void error(Element element, String message) {
+        mMessager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,282 @@
+package com.yxkang.rxandroid.compiler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+/**
+ * the binders and the index generated for the {@code @Subscribe} methods, and the errors of the invalid ones.
+ * the eventbus api is declared by the stubs below, because the android library can't be on the test classpath
+ */
+public class SubscribeProcessorTest {
+
+    private static final List<JavaFileObject> EVENTBUS = ImmutableList.of(
+            JavaFileObjects.forSourceLines("com.yxkang.rxandroid.Subscribe",
+                    "package com.yxkang.rxandroid;",
+                    "public @interface Subscribe {",
+                    "    ThreadMode threadMode() default ThreadMode.POSTING;",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.yxkang.rxandroid.ThreadMode",
+                    "package com.yxkang.rxandroid;",
+                    "public enum ThreadMode { POSTING, MAIN, MAIN_ORDERED, BACKGROUND, ASYNC }"),
+            JavaFileObjects.forSourceLines("com.yxkang.rxandroid.SubscriberBinder",
+                    "package com.yxkang.rxandroid;",
+                    "public interface SubscriberBinder<T> {",
+                    "    void bind(RxEventBus bus, T subscriber);",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.yxkang.rxandroid.SubscriberIndex",
+                    "package com.yxkang.rxandroid;",
+                    "public interface SubscriberIndex {",
+                    "    SubscriberBinder<?> getBinder(Class<?> subscriberClass);",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.yxkang.rxandroid.RxEventBus",
+                    "package com.yxkang.rxandroid;",
+                    "import rx.Observable;",
+                    "import rx.Subscription;",
+                    "import rx.functions.Action2;",
+                    "public class RxEventBus {",
+                    "    public <T> Observable<T> ofType(Class<T> eventType) {",
+                    "        return null;",
+                    "    }",
+                    "    public <T> Observable<T> ofType(Class<T> eventType, ThreadMode threadMode) {",
+                    "        return null;",
+                    "    }",
+                    "    public <S, T> Subscription subscribe(S subscriber, Observable<T> observable,",
+                    "                                         Action2<? super S, ? super T> onNext) {",
+                    "        return null;",
+                    "    }",
+                    "}"));
+
+    @Test
+    public void indexNamesEveryBinder() {
+        JavaFileObject sub = JavaFileObjects.forSourceLines("test.Sub",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "import com.yxkang.rxandroid.ThreadMode;",
+                "public class Sub {",
+                "    @Subscribe",
+                "    public void onText(String text) {",
+                "    }",
+                "    @Subscribe(threadMode = ThreadMode.ASYNC)",
+                "    void onNumber(Integer number) {",
+                "    }",
+                "}");
+        JavaFileObject hidden = JavaFileObjects.forSourceLines("other.Hidden",
+                "package other;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "class Hidden {",
+                "    @Subscribe",
+                "    void onText(String text) {",
+                "    }",
+                "}");
+        Compilation compilation = compile(sub, hidden);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder").contentsAsUtf8String()
+                .contains("bus.subscribe(subscriber, bus.ofType(java.lang.String.class), new Handler(0));");
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder").contentsAsUtf8String()
+                .contains("bus.subscribe(subscriber, bus.ofType(java.lang.Integer.class, ThreadMode.ASYNC), new Handler(1));");
+        assertThat(compilation).generatedSourceFile("test.TestIndex").contentsAsUtf8String()
+                .contains("if (subscriberClass == test.Sub.class) {");
+        // the index can't name a package private class of another package
+        assertThat(compilation).generatedSourceFile("test.TestIndex").contentsAsUtf8String()
+                .contains("if (\"other.Hidden\".equals(subscriberClass.getName())) {");
+        assertThat(compilation).generatedSourceFile("test.TestIndex").contentsAsUtf8String()
+                .contains("return new other.Hidden_SubscriberBinder();");
+    }
+
+    @Test
+    public void nestedSubscriberBinderName() {
+        JavaFileObject outer = JavaFileObjects.forSourceLines("test.Outer",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Outer {",
+                "    public static class Inner {",
+                "        @Subscribe",
+                "        public void onText(String text) {",
+                "        }",
+                "    }",
+                "}");
+        Compilation compilation = compile(outer);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("test.TestIndex").contentsAsUtf8String()
+                .contains("return new test.Outer_Inner_SubscriberBinder();");
+    }
+
+    @Test
+    public void missingIndexOptionIsWarned() {
+        JavaFileObject sub = JavaFileObjects.forSourceLines("test.Sub",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Sub {",
+                "    @Subscribe",
+                "    public void onText(String text) {",
+                "    }",
+                "}");
+        Compilation compilation = javac().withProcessors(new SubscribeProcessor()).compile(sources(sub));
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("no subscriber index is generated");
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder");
+    }
+
+    @Test
+    public void privateMethodIsError() {
+        JavaFileObject sub = subscriber("private void onText(String text) {");
+        Compilation compilation = compile(sub);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@Subscribe method must not be private or static")
+                .inFile(sub).onLine(5);
+    }
+
+    @Test
+    public void staticMethodIsError() {
+        JavaFileObject sub = subscriber("public static void onText(String text) {");
+        Compilation compilation = compile(sub);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@Subscribe method must not be private or static")
+                .inFile(sub).onLine(5);
+    }
+
+    @Test
+    public void wrongArityIsError() {
+        JavaFileObject none = subscriber("public void onText() {");
+        Compilation compilation = compile(none);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@Subscribe method must have exactly one parameter")
+                .inFile(none).onLine(5);
+
+        JavaFileObject two = subscriber("public void onText(String text, String other) {");
+        compilation = compile(two);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@Subscribe method must have exactly one parameter")
+                .inFile(two).onLine(5);
+    }
+
+    @Test
+    public void primitiveParameterIsError() {
+        JavaFileObject sub = subscriber("public void onNumber(int number) {");
+        Compilation compilation = compile(sub);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@Subscribe method parameter must not be a primitive type")
+                .inFile(sub).onLine(5);
+    }
+
+    @Test
+    public void privateNestedClassIsError() {
+        JavaFileObject outer = JavaFileObjects.forSourceLines("test.Outer",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Outer {",
+                "    private static class Inner {",
+                "        @Subscribe",
+                "        public void onText(String text) {",
+                "        }",
+                "    }",
+                "}");
+        Compilation compilation = compile(outer);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@Subscribe class must not be private: test.Outer.Inner");
+    }
+
+    @Test
+    public void inheritedHandlersAreBound() {
+        JavaFileObject base = JavaFileObjects.forSourceLines("test.Base",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Base {",
+                "    @Subscribe",
+                "    public void onText(String text) {",
+                "    }",
+                "    @Subscribe",
+                "    void onNumber(Integer number) {",
+                "    }",
+                "}");
+        JavaFileObject sub = JavaFileObjects.forSourceLines("test.Sub",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Sub extends Base {",
+                "    @Subscribe",
+                "    @Override",
+                "    public void onText(String text) {",
+                "    }",
+                "    @Subscribe",
+                "    public void onLong(Long value) {",
+                "    }",
+                "}");
+        Compilation compilation = compile(base, sub);
+        assertThat(compilation).succeeded();
+        // the override is bound once, the inherited package private handler is called through the subclass
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder").contentsAsUtf8String()
+                .contains("bus.subscribe(subscriber, bus.ofType(java.lang.String.class), new Handler(0));");
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder").contentsAsUtf8String()
+                .contains("bus.subscribe(subscriber, bus.ofType(java.lang.Long.class), new Handler(1));");
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder").contentsAsUtf8String()
+                .contains("bus.subscribe(subscriber, bus.ofType(java.lang.Integer.class), new Handler(2));");
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder").contentsAsUtf8String()
+                .doesNotContain("new Handler(3)");
+        assertThat(compilation).generatedSourceFile("test.Sub_SubscriberBinder").contentsAsUtf8String()
+                .contains("subscriber.onNumber((java.lang.Integer) event);");
+        assertThat(compilation).generatedSourceFile("test.TestIndex").contentsAsUtf8String()
+                .contains("if (subscriberClass == test.Base.class) {");
+    }
+
+    @Test
+    public void inheritedPackagePrivateHandlerOfOtherPackageIsError() {
+        JavaFileObject base = JavaFileObjects.forSourceLines("other.Base",
+                "package other;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Base {",
+                "    @Subscribe",
+                "    void onText(String text) {",
+                "    }",
+                "}");
+        JavaFileObject sub = JavaFileObjects.forSourceLines("test.Sub",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Sub extends other.Base {",
+                "    @Subscribe",
+                "    public void onLong(Long value) {",
+                "    }",
+                "}");
+        Compilation compilation = compile(base, sub);
+        assertThat(compilation).failed();
+        assertThat(compilation).hadErrorContaining("@Subscribe method of a super class in another package must be public")
+                .inFile(base).onLine(5);
+    }
+
+    private static Compilation compile(JavaFileObject... subscribers) {
+        return javac().withProcessors(new SubscribeProcessor())
+                .withOptions("-A" + SubscribeProcessor.OPTION_INDEX + "=test.TestIndex")
+                .compile(sources(subscribers));
+    }
+
+    private static List<JavaFileObject> sources(JavaFileObject... subscribers) {
+        List<JavaFileObject> sources = new ArrayList<>(EVENTBUS);
+        sources.addAll(Arrays.asList(subscribers));
+        return sources;
+    }
+
+    /**
+     * @param declaration the declaration of the {@code @Subscribe} method at line 5
+     */
+    private static JavaFileObject subscriber(String declaration) {
+        return JavaFileObjects.forSourceLines("test.Sub",
+                "package test;",
+                "import com.yxkang.rxandroid.Subscribe;",
+                "public class Sub {",
+                "    @Subscribe",
+                "    " + declaration,
+                "    }",
+                "}");
+    }
+}
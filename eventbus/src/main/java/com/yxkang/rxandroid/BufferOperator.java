@@ -0,0 +1,143 @@
+package com.yxkang.rxandroid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.observers.SerializedSubscriber;
+
+/**
+ * <h1>BufferOperator</h1>
+ * collect the events of a subscription into lists, a list is delivered when it is full or when its first event
+ * is older than the max delay. only the first event of a list schedules a flush on the {@link TimerWheel}, the flush of a list
+ * which is delivered already does nothing, and the timed flushes are delivered in main thread
+ *
+ * @param <T> data model
+ */
+final class BufferOperator<T> implements Observable.Operator<List<T>, T> {
+
+    private final RxEventBus mBus;
+    private final int mMaxCount;
+    private final long mMaxDelayNanos;
+
+    BufferOperator(RxEventBus bus, int maxCount, long maxDelayNanos) {
+        mBus = bus;
+        mMaxCount = maxCount;
+        mMaxDelayNanos = maxDelayNanos;
+    }
+
+    @Override
+    public Subscriber<? super T> call(Subscriber<? super List<T>> child) {
+        return new BufferSubscriber(new SerializedSubscriber<>(child));
+    }
+
+    private final class BufferSubscriber extends Subscriber<T> {
+
+        private final Subscriber<? super List<T>> mChild;
+        private List<T> mBuffer;
+        /**
+         * the count of the lists started, a timed flush only delivers the list it was scheduled for
+         */
+        private long mGeneration;
+
+        BufferSubscriber(Subscriber<? super List<T>> child) {
+            super(child);
+            mChild = child;
+        }
+
+        @Override
+        public void onNext(T t) {
+            List<T> full = null;
+            synchronized (this) {
+                if (mBuffer == null) {
+                    mBuffer = new ArrayList<>(Math.min(mMaxCount, 16));
+                    final long generation = ++mGeneration;
+                    TimerWheel.getDefault().schedule(new TimerWheel.Timeout() {
+                        @Override
+                        void run() {
+                            mBus.enqueue(new Flush(generation), Priority.NORMAL);
+                        }
+                    }, mMaxDelayNanos, 0);
+                }
+                RecyclableEvent.retain(t);
+                mBuffer.add(t);
+                if (mBuffer.size() >= mMaxCount) {
+                    full = mBuffer;
+                    mBuffer = null;
+                }
+            }
+            if (full != null) {
+                deliver(full);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            List<T> rest;
+            synchronized (this) {
+                rest = mBuffer;
+                mBuffer = null;
+            }
+            if (rest != null) {
+                deliver(rest);
+            }
+            mChild.onCompleted();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            List<T> dropped;
+            synchronized (this) {
+                dropped = mBuffer;
+                mBuffer = null;
+            }
+            if (dropped != null) {
+                release(dropped);
+            }
+            mChild.onError(e);
+        }
+
+        void flush(long generation) {
+            List<T> list;
+            synchronized (this) {
+                if (generation != mGeneration || mBuffer == null) {
+                    return;
+                }
+                list = mBuffer;
+                mBuffer = null;
+            }
+            deliver(list);
+        }
+
+        private void deliver(List<T> list) {
+            try {
+                if (!mChild.isUnsubscribed()) {
+                    mChild.onNext(list);
+                }
+            } finally {
+                release(list);
+            }
+        }
+
+        private void release(List<T> list) {
+            for (int i = 0; i < list.size(); i++) {
+                RecyclableEvent.release(list.get(i));
+            }
+        }
+
+        private final class Flush extends Delivery {
+
+            private final long mFlushGeneration;
+
+            Flush(long generation) {
+                mFlushGeneration = generation;
+            }
+
+            @Override
+            public void run() {
+                flush(mFlushGeneration);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.yxkang.rxandroid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h1>BusMetrics</h1>
+ * the dispatch counters of {@link RxEventBus}, it only exists while the metrics are enabled.
+ * all the counters are atomic, the latency histogram has fixed buckets so recording never allocates
+ */
+final class BusMetrics {
+
+    private final ConcurrentMap<Class<?>, TypeCounters> mTypes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, HandlerCounters> mHandlers = new ConcurrentHashMap<>();
+    private final AtomicLongArray mLatencyBuckets = new AtomicLongArray(EventBusMetrics.LATENCY_BUCKET_COUNT);
+    private final AtomicLong mDeferredDrainCount = new AtomicLong();
+    private final AtomicLong mMaxBacklog = new AtomicLong();
+    private final long mSlowThresholdNanos;
+
+    BusMetrics(long slowThresholdNanos) {
+        mSlowThresholdNanos = slowThresholdNanos;
+    }
+
+    long getSlowThresholdNanos() {
+        return mSlowThresholdNanos;
+    }
+
+    void onPost(Object event) {
+        counters(event).mPostCount.incrementAndGet();
+    }
+
+    /**
+     * @param latencyNanos the time from posting the event to delivering it
+     */
+    void onLatency(long latencyNanos) {
+        mLatencyBuckets.incrementAndGet(EventBusMetrics.latencyBucket(latencyNanos));
+    }
+
+    /**
+     * @param event the event delivered to its subscribers, whether they returned or threw
+     */
+    void onDeliver(Object event) {
+        counters(event).mDeliverCount.incrementAndGet();
+    }
+
+    /**
+     * @param event     the event
+     * @param callNanos the time the subscribers of one subscribed type of the event took
+     */
+    void onSubscriberCall(Object event, long callNanos) {
+        TypeCounters counters = counters(event);
+        if (callNanos > mSlowThresholdNanos) {
+            counters.mSlowCount.incrementAndGet();
+        }
+        max(counters.mMaxDispatchNanos, callNanos);
+    }
+
+    /**
+     * @param subscriberClass the class of the subscriber whose handler was called
+     * @param callNanos       the time the handler took
+     */
+    void onHandler(Class<?> subscriberClass, long callNanos) {
+        HandlerCounters counters = mHandlers.get(subscriberClass);
+        if (counters == null) {
+            counters = new HandlerCounters();
+            HandlerCounters previous = mHandlers.putIfAbsent(subscriberClass, counters);
+            if (previous != null) {
+                counters = previous;
+            }
+        }
+        counters.mCallCount.incrementAndGet();
+        if (callNanos > mSlowThresholdNanos) {
+            counters.mSlowCount.incrementAndGet();
+        }
+        max(counters.mMaxCallNanos, callNanos);
+    }
+
+    /**
+     * @param backlog the count of the events left to the next frame by a drain out of budget
+     */
+    void onDrainDeferred(int backlog) {
+        mDeferredDrainCount.incrementAndGet();
+        max(mMaxBacklog, backlog);
+    }
+
+    private static void max(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    EventBusMetrics snapshot(EventQueue queue) {
+        Map<Class<?>, EventBusMetrics.TypeMetrics> types = new HashMap<>();
+        for (Map.Entry<Class<?>, TypeCounters> entry : mTypes.entrySet()) {
+            TypeCounters counters = entry.getValue();
+            types.put(entry.getKey(), new EventBusMetrics.TypeMetrics(counters.mPostCount.get(),
+                    counters.mDeliverCount.get(), counters.mSlowCount.get(), counters.mMaxDispatchNanos.get()));
+        }
+        Map<Class<?>, EventBusMetrics.HandlerMetrics> handlers = new HashMap<>();
+        for (Map.Entry<Class<?>, HandlerCounters> entry : mHandlers.entrySet()) {
+            HandlerCounters counters = entry.getValue();
+            handlers.put(entry.getKey(), new EventBusMetrics.HandlerMetrics(counters.mCallCount.get(),
+                    counters.mSlowCount.get(), counters.mMaxCallNanos.get()));
+        }
+        long[] latencyBuckets = new long[mLatencyBuckets.length()];
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = mLatencyBuckets.get(i);
+        }
+        Priority[] priorities = Priority.values();
+        int[] queueDepths = new int[priorities.length];
+        for (Priority priority : priorities) {
+            queueDepths[priority.ordinal()] = queue.depth(priority);
+        }
+        return new EventBusMetrics(types, handlers, latencyBuckets, queueDepths, mDeferredDrainCount.get(), mMaxBacklog.get());
+    }
+
+    private TypeCounters counters(Object event) {
+        Class<?> eventClass = event == null ? Object.class : event.getClass();
+        TypeCounters counters = mTypes.get(eventClass);
+        if (counters == null) {
+            counters = new TypeCounters();
+            TypeCounters previous = mTypes.putIfAbsent(eventClass, counters);
+            if (previous != null) {
+                counters = previous;
+            }
+        }
+        return counters;
+    }
+
+    private static final class TypeCounters {
+
+        final AtomicLong mPostCount = new AtomicLong();
+        final AtomicLong mDeliverCount = new AtomicLong();
+        final AtomicLong mSlowCount = new AtomicLong();
+        final AtomicLong mMaxDispatchNanos = new AtomicLong();
+    }
+
+    private static final class HandlerCounters {
+
+        final AtomicLong mCallCount = new AtomicLong();
+        final AtomicLong mSlowCount = new AtomicLong();
+        final AtomicLong mMaxCallNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,83 @@
+package com.yxkang.rxandroid;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h1>CodecRegistry</h1>
+ * the {@link EventCodec} of every event type written by {@link EventBridge} and {@link EventJournal},
+ * looked up by the exact class of an event or by its type id
+ */
+final class CodecRegistry {
+
+    private final Map<Class<?>, Entry<?>> mByType;
+    private final Map<Integer, Entry<?>> mById;
+
+    CodecRegistry() {
+        mByType = new HashMap<>();
+        mById = new HashMap<>();
+    }
+
+    CodecRegistry(CodecRegistry other) {
+        mByType = new HashMap<>(other.mByType);
+        mById = new HashMap<>(other.mById);
+    }
+
+    <T> void register(int typeId, Class<T> eventType, EventCodec<T> codec) {
+        if (typeId < 0) {
+            throw new IllegalArgumentException("typeId < 0");
+        }
+        if (eventType == null || codec == null) {
+            throw new NullPointerException("eventType == null || codec == null");
+        }
+        if (mByType.containsKey(eventType) || mById.containsKey(typeId)) {
+            throw new IllegalArgumentException("duplicate registration of " + typeId + " " + eventType.getName());
+        }
+        Entry<T> entry = new Entry<>(typeId, eventType, codec);
+        mByType.put(eventType, entry);
+        mById.put(typeId, entry);
+    }
+
+    /**
+     * @return the entry of the exact class, or {@code null}
+     */
+    Entry<?> get(Class<?> eventType) {
+        return mByType.get(eventType);
+    }
+
+    /**
+     * @return the entry of the type id, or {@code null}
+     */
+    Entry<?> get(int typeId) {
+        return mById.get(typeId);
+    }
+
+    Collection<Entry<?>> entries() {
+        return mByType.values();
+    }
+
+    static final class Entry<T> {
+
+        final int mId;
+        final Class<T> mType;
+        final EventCodec<T> mCodec;
+
+        Entry(int id, Class<T> type, EventCodec<T> codec) {
+            mId = id;
+            mType = type;
+            mCodec = codec;
+        }
+
+        void encode(Object event, DataOutput out) throws IOException {
+            mCodec.encode(mType.cast(event), out);
+        }
+
+        T decode(DataInput in) throws IOException {
+            return mCodec.decode(in);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>Delivery</h1>
+ * a pending delivery to some subscribers, it is queued by {@link EventQueue} like an event
+ * but run instead of being dispatched
+ */
+abstract class Delivery implements Runnable {
+}
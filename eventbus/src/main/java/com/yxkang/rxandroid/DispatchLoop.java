@@ -0,0 +1,52 @@
+package com.yxkang.rxandroid;
+
+import java.util.ArrayDeque;
+
+/**
+ * <h1>DispatchLoop</h1>
+ * the dispatch state of one thread of a bus, kept in a {@link ThreadLocal} so it needs no lock.
+ * the events posted by the subscribers while the thread is dispatching are queued here and dispatched in order
+ * after the current event, instead of recursively on the stack
+ */
+final class DispatchLoop {
+
+    /**
+     * {@link ArrayDeque} doesn't permit {@code null}
+     */
+    private static final Object NULL_EVENT = new Object();
+
+    private final ArrayDeque<Object> mNested = new ArrayDeque<>();
+    private boolean mDispatching;
+
+    /**
+     * @return {@code true} if the caller should dispatch the event and then the nested ones,
+     * {@code false} if the thread is dispatching already and the event is queued
+     */
+    boolean enter(Object event) {
+        if (mDispatching) {
+            mNested.add(event == null ? NULL_EVENT : event);
+            return false;
+        }
+        mDispatching = true;
+        return true;
+    }
+
+    /**
+     * @return {@code true} if a nested event is queued, it is taken by {@link #next()}
+     */
+    boolean hasNext() {
+        return !mNested.isEmpty();
+    }
+
+    Object next() {
+        Object event = mNested.poll();
+        return event == NULL_EVENT ? null : event;
+    }
+
+    /**
+     * end the dispatch, after all the nested events are taken
+     */
+    void exit() {
+        mDispatching = false;
+    }
+}
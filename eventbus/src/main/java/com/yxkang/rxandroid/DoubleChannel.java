@@ -0,0 +1,61 @@
+package com.yxkang.rxandroid;
+
+import rx.Subscription;
+
+/**
+ * <h1>DoubleChannel</h1>
+ * a {@link PrimitiveChannel} of {@code double} values.
+ * the values posted to main thread from other threads are conflated to the latest one, unlike
+ * {@link RxEventBus#post(Object)}, use {@link #post(double, boolean)} to deliver every value in the posting thread
+ *
+ * @see RxEventBus#doubleChannel(String)
+ */
+public final class DoubleChannel extends PrimitiveChannel {
+
+    DoubleChannel(RxEventBus bus, String name) {
+        super(bus, name);
+    }
+
+    /**
+     * post the value in main thread. a value posted from another thread is conflated: if the values are posted
+     * faster than main thread delivers them, only the latest one is delivered and the others are dropped
+     *
+     * @param value the value
+     */
+    public void post(double value) {
+        postBits(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * post the value
+     *
+     * @param value      the value
+     * @param mainThread {@code true} post the value in main thread like {@link #post(double)}, otherwise deliver it
+     *                   in current thread at once
+     */
+    public void post(double value, boolean mainThread) {
+        postBits(Double.doubleToRawLongBits(value), mainThread);
+    }
+
+    /**
+     * @param listener the listener
+     * @return the subscription to remove the listener
+     */
+    public Subscription addListener(Listener listener) {
+        return add(listener);
+    }
+
+    @Override
+    void call(Object listener, long bits) {
+        ((Listener) listener).onValue(Double.longBitsToDouble(bits));
+    }
+
+    /**
+     * <h1>Listener</h1>
+     * the listener of a {@link DoubleChannel}
+     */
+    public interface Listener {
+
+        void onValue(double value);
+    }
+}
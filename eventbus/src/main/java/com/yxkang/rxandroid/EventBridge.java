@@ -0,0 +1,324 @@
+package com.yxkang.rxandroid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * <h1>EventBridge</h1>
+ * send the registered event types of a bus to another process, and post the events of the other process to the bus.
+ * the two sides are connected by a pair of streams, usually the streams of a unix domain socket, see {@link LocalSocketBridge}
+ * <p>
+ * every event is written as a frame of {@code varint type id, varint payload length, payload}, the payload is written by the
+ * {@link EventCodec} of the type. the events are written by a single thread, which flushes once for all the events queued
+ * while it was writing, so a burst of events is sent in a few writes.
+ * the events of the other process are posted as {@link RxEventBus#post(Object)}, and they are not sent back.
+ * only the exact registered classes are sent, a subclass needs a registration of its own.
+ * the bridge is closed when the bus is shut down
+ * </p>
+ * <pre class="prettyprint">
+ * EventBridge bridge = new EventBridge.Builder()
+ * &nbsp;&nbsp;.bus(RxEventBus.getInstance())
+ * &nbsp;&nbsp;.register(1, UploadProgressEvent.class, new UploadProgressCodec())
+ * &nbsp;&nbsp;.build();
+ * LocalSocketBridge.connect(bridge, "upload");
+ * </pre>
+ */
+public final class EventBridge implements Closeable {
+
+    private static final String TAG = "EventBridge";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_BATCH = 256;
+    private static final int MAX_PAYLOAD = 1 << 20;
+    private static final Object CLOSE = new Object();
+
+    private final RxEventBus mBus;
+    private final CodecRegistry mCodecs;
+    private final LinkedBlockingQueue<Object> mOutbox = new LinkedBlockingQueue<>();
+    private final Set<Object> mReceived = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+    private final CompositeSubscription mSubscriptions = new CompositeSubscription();
+    private final AtomicBoolean mStarted = new AtomicBoolean();
+    private final AtomicBoolean mClosed = new AtomicBoolean();
+
+    private EventBridge(Builder builder) {
+        mBus = builder.mBus != null ? builder.mBus : RxEventBus.getInstance();
+        mCodecs = new CodecRegistry(builder.mCodecs);
+    }
+
+    /**
+     * subscribe the registered types and start the reader and the writer threads.
+     * the streams are closed when the bridge is closed, or when one of them fails
+     *
+     * @param in  the events of the other process
+     * @param out the events to the other process
+     */
+    public void start(InputStream in, OutputStream out) {
+        if (!mStarted.compareAndSet(false, true)) {
+            throw new IllegalStateException("the bridge is already started");
+        }
+        for (final CodecRegistry.Entry<?> entry : mCodecs.entries()) {
+            mSubscriptions.add(mBus.ofType(entry.mType).subscribe(new Action1<Object>() {
+                @Override
+                public void call(Object event) {
+                    send(entry, event);
+                }
+            }, new Action1<Throwable>() {
+                @Override
+                public void call(Throwable e) {
+                    close();
+                }
+            }, new Action0() {
+                @Override
+                public void call() {
+                    // the bus is shut down
+                    close();
+                }
+            }));
+        }
+        startThread(new Reader(in), "EventBridge-reader");
+        startThread(new Writer(in, out), "EventBridge-writer");
+    }
+
+    /**
+     * stop sending the events, the events already queued are still written before the streams are closed.
+     * an event delivered to the bridge while it is closing is dropped, and released if it is recyclable
+     */
+    @Override
+    public void close() {
+        if (mClosed.compareAndSet(false, true)) {
+            mSubscriptions.unsubscribe();
+            mReceived.clear();
+            mOutbox.offer(CLOSE);
+        }
+    }
+
+    /**
+     * @return whether the bridge is closed, by {@link #close()} or by the other process
+     */
+    public boolean isClosed() {
+        return mClosed.get();
+    }
+
+    private void send(CodecRegistry.Entry<?> entry, Object event) {
+        if (mReceived.remove(event) || event.getClass() != entry.mType) {
+            return;
+        }
+        RecyclableEvent.retain(event);
+        mOutbox.offer(event);
+        // queued after CLOSE, the writer may have drained the outbox and left already
+        if (mClosed.get() && mOutbox.remove(event)) {
+            RecyclableEvent.release(event);
+        }
+    }
+
+    private static void startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private final class Reader implements Runnable {
+
+        private final InputStream mIn;
+
+        Reader(InputStream in) {
+            mIn = in;
+        }
+
+        @Override
+        public void run() {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(mIn, BUFFER_SIZE));
+            byte[] buffer = new byte[256];
+            try {
+                while (true) {
+                    int id;
+                    try {
+                        id = readVarint(in);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    int length = readVarint(in);
+                    if (length < 0 || length > MAX_PAYLOAD) {
+                        throw new IOException("bad payload length " + length);
+                    }
+                    if (buffer.length < length) {
+                        buffer = new byte[Math.max(length, buffer.length * 2)];
+                    }
+                    in.readFully(buffer, 0, length);
+                    CodecRegistry.Entry<?> entry = mCodecs.get(id);
+                    if (entry != null) {
+                        receive(entry, buffer, length);
+                    }
+                }
+            } catch (IOException e) {
+                if (!mClosed.get()) {
+                    EventBusLog.w(TAG, "read failed", e);
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private void receive(CodecRegistry.Entry<?> entry, byte[] buffer, int length) {
+            Object event;
+            try {
+                event = entry.decode(new DataInputStream(new ByteArrayInputStream(buffer, 0, length)));
+            } catch (IOException e) {
+                EventBusLog.w(TAG, "drop a broken " + entry.mType.getName(), e);
+                return;
+            }
+            if (mClosed.get() || mBus.isShutdown()) {
+                // it would never be delivered back to the bridge to be removed from the received events
+                return;
+            }
+            mReceived.add(event);
+            mBus.post(event);
+        }
+    }
+
+    private final class Writer implements Runnable {
+
+        private final InputStream mIn;
+        private final OutputStream mOut;
+
+        Writer(InputStream in, OutputStream out) {
+            mIn = in;
+            mOut = out;
+        }
+
+        @Override
+        public void run() {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(mOut, BUFFER_SIZE));
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+            DataOutputStream payloadOut = new DataOutputStream(payload);
+            Queue<Object> batch = new ArrayDeque<>();
+            try {
+                while (true) {
+                    batch.add(mOutbox.take());
+                    mOutbox.drainTo(batch, MAX_BATCH);
+                    Object event;
+                    while ((event = batch.poll()) != null) {
+                        if (event == CLOSE) {
+                            out.flush();
+                            return;
+                        }
+                        CodecRegistry.Entry<?> entry = mCodecs.get(event.getClass());
+                        payload.reset();
+                        try {
+                            entry.encode(event, payloadOut);
+                        } catch (IOException e) {
+                            EventBusLog.w(TAG, "drop an unwritable " + entry.mType.getName(), e);
+                            continue;
+                        } finally {
+                            RecyclableEvent.release(event);
+                        }
+                        writeVarint(out, entry.mId);
+                        writeVarint(out, payload.size());
+                        payload.writeTo(out);
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (!mClosed.get()) {
+                    EventBusLog.w(TAG, "write failed", e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+                // the events after CLOSE, or left by a failed write, are never written
+                mOutbox.drainTo(batch);
+                Object event;
+                while ((event = batch.poll()) != null) {
+                    RecyclableEvent.release(event);
+                }
+                closeQuietly(mOut);
+                closeQuietly(mIn);
+            }
+        }
+    }
+
+    /**
+     * <h1>Builder</h1>
+     * both processes must register the same type ids
+     */
+    public static final class Builder {
+
+        private RxEventBus mBus;
+        private final CodecRegistry mCodecs = new CodecRegistry();
+
+        /**
+         * @param bus the bus to bridge, the default is {@link RxEventBus#getInstance()}
+         * @return this builder
+         */
+        public Builder bus(RxEventBus bus) {
+            mBus = bus;
+            return this;
+        }
+
+        /**
+         * @param typeId    the id of the type on the wire, the same in both processes
+         * @param eventType the exact class of the events
+         * @param codec     the binary form of the events
+         * @param <T>       the event type
+         * @return this builder
+         */
+        public <T> Builder register(int typeId, Class<T> eventType, EventCodec<T> codec) {
+            mCodecs.register(typeId, eventType, codec);
+            return this;
+        }
+
+        public EventBridge build() {
+            return new EventBridge(this);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.yxkang.rxandroid;
+
+import android.util.Log;
+
+/**
+ * <h1>EventBusLog</h1>
+ * forward to {@link Log} on android, and do nothing on a plain JVM where there is no {@link Log}
+ */
+final class EventBusLog {
+
+    private static final boolean ANDROID = isAndroid();
+
+    private EventBusLog() {
+    }
+
+    static void i(String tag, String msg) {
+        if (ANDROID) {
+            Log.i(tag, msg);
+        }
+    }
+
+    static void w(String tag, String msg, Throwable tr) {
+        if (ANDROID) {
+            Log.w(tag, msg, tr);
+        }
+    }
+
+    private static boolean isAndroid() {
+        try {
+            Class.forName("android.util.Log");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
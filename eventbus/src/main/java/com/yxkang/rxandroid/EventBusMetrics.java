@@ -0,0 +1,259 @@
+package com.yxkang.rxandroid;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>EventBusMetrics</h1>
+ * a snapshot of the dispatch metrics of {@link RxEventBus}, see {@link RxEventBus#getMetrics()}.
+ * <p>The post-to-delivery latency is counted in fixed buckets, bucket {@code i} counts the latencies less than
+ * {@link #getLatencyBucketBound(int)} and not less than the bound of bucket {@code i - 1}, the last bucket has no bound</p>
+ */
+public final class EventBusMetrics {
+
+    private static final long[] LATENCY_BUCKET_BOUNDS_MICROS = {100, 1000, 4000, 16000, 50000, 100000, 500000};
+    static final int LATENCY_BUCKET_COUNT = LATENCY_BUCKET_BOUNDS_MICROS.length + 1;
+
+    private final Map<Class<?>, TypeMetrics> mTypes;
+    private final Map<Class<?>, HandlerMetrics> mHandlers;
+    private final long[] mLatencyBuckets;
+    private final int[] mQueueDepths;
+    private final long mDeferredDrainCount;
+    private final long mMaxBacklog;
+
+    EventBusMetrics(Map<Class<?>, TypeMetrics> types, Map<Class<?>, HandlerMetrics> handlers, long[] latencyBuckets,
+                    int[] queueDepths, long deferredDrainCount, long maxBacklog) {
+        mTypes = Collections.unmodifiableMap(types);
+        mHandlers = Collections.unmodifiableMap(handlers);
+        mLatencyBuckets = latencyBuckets;
+        mQueueDepths = queueDepths;
+        mDeferredDrainCount = deferredDrainCount;
+        mMaxBacklog = maxBacklog;
+    }
+
+    static int latencyBucket(long latencyNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKET_BOUNDS_MICROS.length && micros >= LATENCY_BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * @return the metrics of every posted event class
+     */
+    public Map<Class<?>, TypeMetrics> getTypes() {
+        return mTypes;
+    }
+
+    /**
+     * @return the metrics of the handlers of every subscriber class, only the handlers subscribed by
+     * {@link RxEventBus#register(Object)} or {@link RxEventBus#subscribe(Object, rx.Observable, rx.functions.Action2)}
+     * are known by their subscriber
+     */
+    public Map<Class<?>, HandlerMetrics> getHandlers() {
+        return mHandlers;
+    }
+
+    /**
+     * @return the count of the latency buckets
+     */
+    public int getLatencyBucketCount() {
+        return mLatencyBuckets.length;
+    }
+
+    /**
+     * @param bucket the bucket index
+     * @return the exclusive upper bound of the bucket in microseconds, {@link Long#MAX_VALUE} for the last bucket
+     */
+    public long getLatencyBucketBound(int bucket) {
+        return bucket < LATENCY_BUCKET_BOUNDS_MICROS.length ? LATENCY_BUCKET_BOUNDS_MICROS[bucket] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param bucket the bucket index
+     * @return the count of the events whose post-to-delivery latency falls in the bucket
+     */
+    public long getLatencyCount(int bucket) {
+        return mLatencyBuckets[bucket];
+    }
+
+    /**
+     * @param priority the priority
+     * @return the count of the events of the priority which were waiting to be delivered in main thread
+     */
+    public int getQueueDepth(Priority priority) {
+        return mQueueDepths[priority.ordinal()];
+    }
+
+    /**
+     * @return the count of the events of all the priorities which were waiting to be delivered in main thread
+     */
+    public int getBacklog() {
+        int backlog = 0;
+        for (int depth : mQueueDepths) {
+            backlog += depth;
+        }
+        return backlog;
+    }
+
+    /**
+     * @return the count of the drains which used up the frame budget and left events to the next frame
+     * @see RxEventBus#setFrameBudget(long, TimeUnit)
+     */
+    public long getDeferredDrainCount() {
+        return mDeferredDrainCount;
+    }
+
+    /**
+     * @return the largest count of the events left to the next frame by a drain
+     */
+    public long getMaxBacklog() {
+        return mMaxBacklog;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("EventBusMetrics{latency=[");
+        for (int i = 0; i < mLatencyBuckets.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(i < LATENCY_BUCKET_BOUNDS_MICROS.length ? "<" + LATENCY_BUCKET_BOUNDS_MICROS[i] + "us" : "more")
+                    .append(": ").append(mLatencyBuckets[i]);
+        }
+        builder.append("], queueDepth=[");
+        for (Priority priority : Priority.values()) {
+            if (priority.ordinal() > 0) {
+                builder.append(", ");
+            }
+            builder.append(priority).append(": ").append(mQueueDepths[priority.ordinal()]);
+        }
+        builder.append("], deferredDrains=").append(mDeferredDrainCount)
+                .append(", maxBacklog=").append(mMaxBacklog)
+                .append(", types={");
+        boolean first = true;
+        for (Map.Entry<Class<?>, TypeMetrics> entry : mTypes.entrySet()) {
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(entry.getKey().getName()).append('=').append(entry.getValue());
+        }
+        builder.append("}, handlers={");
+        first = true;
+        for (Map.Entry<Class<?>, HandlerMetrics> entry : mHandlers.entrySet()) {
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(entry.getKey().getName()).append('=').append(entry.getValue());
+        }
+        return builder.append("}}").toString();
+    }
+
+    /**
+     * <h1>TypeMetrics</h1>
+     * the metrics of an event class
+     */
+    public static final class TypeMetrics {
+
+        private final long mPostCount;
+        private final long mDeliverCount;
+        private final long mSlowCount;
+        private final long mMaxDispatchNanos;
+
+        TypeMetrics(long postCount, long deliverCount, long slowCount, long maxDispatchNanos) {
+            mPostCount = postCount;
+            mDeliverCount = deliverCount;
+            mSlowCount = slowCount;
+            mMaxDispatchNanos = maxDispatchNanos;
+        }
+
+        /**
+         * @return the count of the posted events
+         */
+        public long getPostCount() {
+            return mPostCount;
+        }
+
+        /**
+         * @return the count of the events delivered to the subscribers, including the deliveries whose subscribers
+         * threw, less than the post count
+         * while events are queued or after conflated events were replaced
+         */
+        public long getDeliverCount() {
+            return mDeliverCount;
+        }
+
+        /**
+         * @return the count of the calls of the subscribers of one subscribed type, e.g. the event class or one of
+         * its super types, which ran longer than the slow subscriber threshold
+         * @see RxEventBus#setMetricsEnabled(boolean, long, TimeUnit)
+         */
+        public long getSlowCount() {
+            return mSlowCount;
+        }
+
+        /**
+         * @return the longest time the subscribers of one subscribed type took for one event, in nanoseconds
+         */
+        public long getMaxDispatchNanos() {
+            return mMaxDispatchNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{post=" + mPostCount + ", deliver=" + mDeliverCount + ", slow=" + mSlowCount
+                    + ", maxDispatch=" + TimeUnit.NANOSECONDS.toMicros(mMaxDispatchNanos) + "us}";
+        }
+    }
+
+    /**
+     * <h1>HandlerMetrics</h1>
+     * the metrics of the handlers of a subscriber class, which tell the slow subscriber apart
+     * from the other subscribers of the same event
+     */
+    public static final class HandlerMetrics {
+
+        private final long mCallCount;
+        private final long mSlowCount;
+        private final long mMaxCallNanos;
+
+        HandlerMetrics(long callCount, long slowCount, long maxCallNanos) {
+            mCallCount = callCount;
+            mSlowCount = slowCount;
+            mMaxCallNanos = maxCallNanos;
+        }
+
+        /**
+         * @return the count of the handler calls, including the calls which threw
+         */
+        public long getCallCount() {
+            return mCallCount;
+        }
+
+        /**
+         * @return the count of the handler calls which ran longer than the slow subscriber threshold
+         * @see RxEventBus#setMetricsEnabled(boolean, long, TimeUnit)
+         */
+        public long getSlowCount() {
+            return mSlowCount;
+        }
+
+        /**
+         * @return the longest time a handler call took, in nanoseconds
+         */
+        public long getMaxCallNanos() {
+            return mMaxCallNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{call=" + mCallCount + ", slow=" + mSlowCount
+                    + ", maxCall=" + TimeUnit.NANOSECONDS.toMicros(mMaxCallNanos) + "us}";
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.yxkang.rxandroid;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <h1>EventCodec</h1>
+ * the binary form of one event type sent by an {@link EventBridge}.
+ * the bridge writes the type and the length of every event itself, so a codec only writes the fields
+ *
+ * @param <T> the event type
+ */
+public interface EventCodec<T> {
+
+    /**
+     * @param event the event to write
+     * @param out   the payload of the event
+     * @throws IOException if the event can not be written
+     */
+    void encode(T event, DataOutput out) throws IOException;
+
+    /**
+     * @param in the payload written by {@link #encode(Object, DataOutput)}
+     * @return a new event
+     * @throws IOException if the payload is broken
+     */
+    T decode(DataInput in) throws IOException;
+}
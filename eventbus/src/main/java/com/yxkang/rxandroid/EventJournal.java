@@ -0,0 +1,347 @@
+package com.yxkang.rxandroid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * <h1>EventJournal</h1>
+ * an append-only log of the registered event types, attached to a bus by {@link RxEventBus#setJournal(EventJournal)}.
+ * the events are appended in the posting thread before they are queued, so the events lost in a process death
+ * can be posted again by {@link #replay(long, RxEventBus)} when the process starts.
+ * <p>
+ * the log is a directory of memory mapped segment files, a new segment is started when an event does not fit in the
+ * current one, and the oldest segments are deleted when there are more than the max count.
+ * an append is a copy into the mapped memory and never forces it to the disk, the kernel writes the pages back,
+ * so the events survive a process death but not a power loss.
+ * every record is {@code int size, int type id, payload}, the size is written last, so a record torn by a process
+ * death reads as the end of the log
+ * </p>
+ * <p>
+ * the offsets are the byte positions in the whole log: they keep growing across the segments and the restarts,
+ * and only the offsets returned by this class are valid to replay from
+ * </p>
+ */
+public final class EventJournal implements Closeable {
+
+    private static final String TAG = "EventJournal";
+    private static final String SUFFIX = ".journal";
+    private static final int HEADER_SIZE = 8;
+
+    private final File mDirectory;
+    private final int mSegmentSize;
+    private final int mMaxSegments;
+    private final CodecRegistry mCodecs;
+    private final Payload mPayload = new Payload();
+    private final DataOutputStream mPayloadOut = new DataOutputStream(mPayload);
+    private long mBase;
+    private MappedByteBuffer mBuffer;
+    private boolean mClosed;
+
+    private EventJournal(Builder builder) throws IOException {
+        mDirectory = builder.mDirectory;
+        mSegmentSize = builder.mSegmentSize;
+        mMaxSegments = builder.mMaxSegments;
+        mCodecs = new CodecRegistry(builder.mCodecs);
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("can't create " + mDirectory);
+        }
+        long[] bases = segments();
+        if (bases.length == 0) {
+            openSegment(0);
+        } else {
+            long base = bases[bases.length - 1];
+            mBase = base;
+            mBuffer = map(segmentFile(base), FileChannel.MapMode.READ_WRITE, mSegmentSize);
+            mBuffer.position(scan(mBuffer, 0));
+        }
+    }
+
+    /**
+     * append the event if its class is registered. it is called by the bus for every post, the codecs don't change
+     * after {@link Builder#build()}, so the other events cost one map lookup without taking the lock
+     *
+     * @param event the event, {@code null} is not appended
+     * @return the offset of the record, or {@code -1} if the event is not appended
+     */
+    public long append(Object event) {
+        CodecRegistry.Entry<?> entry = event == null ? null : mCodecs.get(event.getClass());
+        if (entry == null) {
+            return -1;
+        }
+        synchronized (this) {
+            return append(entry, event);
+        }
+    }
+
+    private long append(CodecRegistry.Entry<?> entry, Object event) {
+        if (mClosed) {
+            return -1;
+        }
+        mPayload.reset();
+        try {
+            entry.encode(event, mPayloadOut);
+        } catch (IOException e) {
+            EventBusLog.w(TAG, "drop an unwritable " + entry.mType.getName(), e);
+            return -1;
+        }
+        int size = HEADER_SIZE + mPayload.size();
+        if (size > mSegmentSize) {
+            EventBusLog.w(TAG, "drop a " + entry.mType.getName() + " larger than a segment", null);
+            return -1;
+        }
+        try {
+            if (size > mBuffer.remaining()) {
+                openSegment(mBase + mBuffer.position());
+            }
+        } catch (IOException e) {
+            EventBusLog.w(TAG, "can't start a new segment", e);
+            return -1;
+        }
+        int position = mBuffer.position();
+        mBuffer.putInt(position + 4, entry.mId);
+        mBuffer.position(position + HEADER_SIZE);
+        mBuffer.put(mPayload.array(), 0, mPayload.size());
+        mBuffer.putInt(position, size - 4);
+        return mBase + position;
+    }
+
+    /**
+     * @return the offset of the next record, replay from it to skip all the events appended so far
+     */
+    public synchronized long getEndOffset() {
+        return mBase + mBuffer.position();
+    }
+
+    /**
+     * @return the offset of the oldest record which is not deleted
+     */
+    public synchronized long getStartOffset() {
+        return segments()[0];
+    }
+
+    /**
+     * post the events appended since the offset to the bus in their order. the replayed events are not appended again,
+     * the unknown type ids and the records which can't be decoded are skipped.
+     * it is usually called at startup, before new events are posted
+     *
+     * @param offset an offset returned by this journal, a deleted offset is replayed from {@link #getStartOffset()}
+     * @param bus    the bus to post the events to
+     * @return the offset after the last replayed record
+     * @throws IOException if a segment can't be read
+     */
+    public long replay(long offset, RxEventBus bus) throws IOException {
+        long[] bases;
+        synchronized (this) {
+            bases = segments();
+        }
+        long end = Math.max(offset, bases[0]);
+        for (int i = 0; i < bases.length; i++) {
+            long next = i + 1 < bases.length ? bases[i + 1] : Long.MAX_VALUE;
+            if (end >= next) {
+                continue;
+            }
+            File file = segmentFile(bases[i]);
+            ByteBuffer buffer = map(file, FileChannel.MapMode.READ_ONLY, (int) file.length());
+            int position = (int) (end - bases[i]);
+            while (true) {
+                int size = recordSize(buffer, position);
+                if (size < 0) {
+                    break;
+                }
+                replay(buffer, position, size, bus);
+                position += 4 + size;
+            }
+            end = bases[i] + position;
+        }
+        return end;
+    }
+
+    private void replay(ByteBuffer buffer, int position, int size, RxEventBus bus) {
+        CodecRegistry.Entry<?> entry = mCodecs.get(buffer.getInt(position + 4));
+        if (entry == null) {
+            return;
+        }
+        byte[] payload = new byte[size - 4];
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + HEADER_SIZE);
+        record.get(payload);
+        Object event;
+        try {
+            event = entry.decode(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (IOException e) {
+            EventBusLog.w(TAG, "skip a broken " + entry.mType.getName(), e);
+            return;
+        }
+        bus.replay(event);
+    }
+
+    /**
+     * stop appending, the appended events stay in the files
+     */
+    @Override
+    public synchronized void close() {
+        mClosed = true;
+    }
+
+    private void openSegment(long base) throws IOException {
+        mBuffer = map(segmentFile(base), FileChannel.MapMode.READ_WRITE, mSegmentSize);
+        mBase = base;
+        long[] bases = segments();
+        for (int i = 0; i < bases.length - mMaxSegments; i++) {
+            if (!segmentFile(bases[i]).delete()) {
+                EventBusLog.w(TAG, "can't delete " + segmentFile(bases[i]), null);
+            }
+        }
+    }
+
+    /**
+     * @return the size of the record at the position without the size field, or {@code -1} at the end of the segment
+     */
+    private static int recordSize(ByteBuffer buffer, int position) {
+        if (position + HEADER_SIZE > buffer.limit()) {
+            return -1;
+        }
+        int size = buffer.getInt(position);
+        return size < 4 || position + 4 + size > buffer.limit() ? -1 : size;
+    }
+
+    /**
+     * @return the position after the last complete record
+     */
+    private static int scan(ByteBuffer buffer, int position) {
+        int size;
+        while ((size = recordSize(buffer, position)) >= 0) {
+            position += 4 + size;
+        }
+        return position;
+    }
+
+    private static MappedByteBuffer map(File file, FileChannel.MapMode mode, int size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+        try {
+            // the mapping stays valid after the file is closed
+            return raf.getChannel().map(mode, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private File segmentFile(long base) {
+        return new File(mDirectory, String.format(Locale.US, "%020d%s", base, SUFFIX));
+    }
+
+    /**
+     * @return the base offsets of the segments in ascending order
+     */
+    private long[] segments() {
+        String[] names = mDirectory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SUFFIX);
+            }
+        });
+        if (names == null) {
+            return new long[0];
+        }
+        long[] bases = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            bases[i] = Long.parseLong(names[i].substring(0, names[i].length() - SUFFIX.length()));
+        }
+        Arrays.sort(bases);
+        return bases;
+    }
+
+    /**
+     * a reusable payload buffer whose bytes are copied to the segment without {@link #toByteArray()}
+     */
+    private static final class Payload extends ByteArrayOutputStream {
+
+        Payload() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /**
+     * <h1>Builder</h1>
+     * register the same type ids every time the journal is opened, otherwise the old records can't be replayed
+     */
+    public static final class Builder {
+
+        private final File mDirectory;
+        private int mSegmentSize = 1 << 20;
+        private int mMaxSegments = 4;
+        private final CodecRegistry mCodecs = new CodecRegistry();
+
+        /**
+         * @param directory the directory of the segment files, which is used by this journal only
+         */
+        public Builder(File directory) {
+            if (directory == null) {
+                throw new NullPointerException("directory == null");
+            }
+            mDirectory = directory;
+        }
+
+        /**
+         * @param bytes the size of a segment file, 1 MB by default
+         * @return this builder
+         */
+        public Builder segmentSize(int bytes) {
+            if (bytes < HEADER_SIZE) {
+                throw new IllegalArgumentException("segmentSize < " + HEADER_SIZE);
+            }
+            mSegmentSize = bytes;
+            return this;
+        }
+
+        /**
+         * @param count the count of the segment files kept, 4 by default
+         * @return this builder
+         */
+        public Builder maxSegments(int count) {
+            if (count < 1) {
+                throw new IllegalArgumentException("maxSegments < 1");
+            }
+            mMaxSegments = count;
+            return this;
+        }
+
+        /**
+         * @param typeId    the id of the type in the records, which must not change between the versions of the app
+         * @param eventType the exact class of the events
+         * @param codec     the binary form of the events
+         * @param <T>       the event type
+         * @return this builder
+         */
+        public <T> Builder register(int typeId, Class<T> eventType, EventCodec<T> codec) {
+            mCodecs.register(typeId, eventType, codec);
+            return this;
+        }
+
+        /**
+         * open the journal, and continue after the last complete record of the existing segments
+         *
+         * @return the journal
+         * @throws IOException if the segment files can't be created or mapped
+         */
+        public EventJournal build() throws IOException {
+            return new EventJournal(this);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.yxkang.rxandroid;
+
+import rx.functions.Func0;
+
+/**
+ * <h1>EventPool</h1>
+ * a bounded pool of one type of {@link RecyclableEvent}, the released events are kept for {@link #obtain()},
+ * so posting the events at a steady rate allocates no new event. the events beyond the max size are left to the gc
+ *
+ * <pre class="prettyprint">
+ * EventPool&lt;SensorEvent&gt; pool = new EventPool&lt;&gt;(new Func0&lt;SensorEvent&gt;() {
+ * &nbsp;&nbsp;public SensorEvent call() {
+ * &nbsp;&nbsp;&nbsp;&nbsp;return new SensorEvent();
+ * &nbsp;&nbsp;}
+ * }, 32);
+ * SensorEvent event = pool.obtain();
+ * event.set(x, y, z);
+ * RxEventBus.getInstance().post(event);
+ * </pre>
+ *
+ * @param <T> the event type
+ */
+public final class EventPool<T extends RecyclableEvent> {
+
+    private final Func0<? extends T> mFactory;
+    private final Object[] mEvents;
+    private int mSize;
+
+    /**
+     * @param factory create a new event when the pool is empty
+     * @param maxSize the max count of the events kept
+     */
+    public EventPool(Func0<? extends T> factory, int maxSize) {
+        if (factory == null) {
+            throw new NullPointerException("factory == null");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize < 1");
+        }
+        mFactory = factory;
+        mEvents = new Object[maxSize];
+    }
+
+    /**
+     * @return a released event or a new one, with one reference owned by the caller
+     */
+    @SuppressWarnings("unchecked")
+    public T obtain() {
+        T event = null;
+        synchronized (this) {
+            if (mSize > 0) {
+                event = (T) mEvents[--mSize];
+                mEvents[mSize] = null;
+            }
+        }
+        if (event == null) {
+            event = mFactory.call();
+            event.mPool = this;
+        }
+        event.onObtain();
+        return event;
+    }
+
+    /**
+     * @return the count of the events waiting to be obtained
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    void recycle(RecyclableEvent event) {
+        event.reset();
+        synchronized (this) {
+            if (mSize < mEvents.length) {
+                mEvents[mSize++] = event;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.yxkang.rxandroid;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * <h1>EventQueue</h1>
+ * a lock-free multi-producer queue of the events posted from other threads, using in {@link RxEventBus}.
+ * only one drain is scheduled at a time, it delivers all the pending events as a batch, or as many as fit in a budget.
+ * <p>There is one lane per {@link Priority}, the drain always takes the highest non-empty lane,
+ * except every {@value #STARVATION_LIMIT}th event which is the share of the lower lanes: the shares go to the lanes
+ * below the highest one in turns, and a share of an empty lane goes to the next lower lane in turn,
+ * so no lane starves however busy the others are</p>
+ */
+final class EventQueue {
+
+    /**
+     * {@link ConcurrentLinkedQueue} doesn't permit {@code null}
+     */
+    private static final Object NULL_EVENT = new Object();
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final int STARVATION_LIMIT = 32;
+
+    private final Queue<Object>[] mLanes;
+    /**
+     * the depth of every lane, {@link ConcurrentLinkedQueue#size()} is not a constant-time operation
+     */
+    private final AtomicIntegerArray mDepths = new AtomicIntegerArray(PRIORITIES.length);
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    private final Consumer mConsumer;
+    /**
+     * only accessed by the drain
+     */
+    private int mPolled;
+    private int mShares;
+
+    @SuppressWarnings("unchecked")
+    EventQueue(Consumer consumer) {
+        mConsumer = consumer;
+        mLanes = (Queue<Object>[]) new Queue<?>[PRIORITIES.length];
+        for (int i = 0; i < mLanes.length; i++) {
+            mLanes[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * add an event to the queue
+     *
+     * @param event    the event, or a {@link Delivery} which is run when it is drained
+     * @param priority the lane of the event
+     * @return {@code true} if the caller should schedule a drain, {@code false} if a drain is pending already
+     */
+    boolean offer(Object event, Priority priority) {
+        int lane = priority.ordinal();
+        mDepths.incrementAndGet(lane);
+        mLanes[lane].offer(event == null ? NULL_EVENT : event);
+        return mScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * @param priority the lane
+     * @return the count of the events waiting in the lane
+     */
+    int depth(Priority priority) {
+        return mDepths.get(priority.ordinal());
+    }
+
+    /**
+     * deliver all the pending events, including the events added while draining.
+     * if a subscriber throws, the next drain is scheduled by {@link Consumer#reschedule()} when events are left
+     */
+    void drain() {
+        drain(0);
+    }
+
+    /**
+     * deliver the pending events, including the events added while draining, until the queue is empty
+     * or the time budget is used up. if a subscriber throws, the next drain is scheduled by
+     * {@link Consumer#reschedule()} when events are left, so they don't wait for an unrelated offer
+     *
+     * @param budgetNanos the time budget of this drain, or {@code 0} for no budget
+     * @return {@code true} if the queue is empty, {@code false} if events are left and the caller must schedule
+     * the next drain, no offer schedules it meanwhile
+     */
+    boolean drain(long budgetNanos) {
+        long start = budgetNanos > 0 ? System.nanoTime() : 0;
+        boolean completed = false;
+        try {
+            for (; ; ) {
+                Object event;
+                while ((event = poll()) != null) {
+                    if (event instanceof Delivery) {
+                        ((Delivery) event).run();
+                    } else {
+                        mConsumer.accept(event == NULL_EVENT ? null : event);
+                    }
+                    if (budgetNanos > 0 && System.nanoTime() - start >= budgetNanos && !isEmpty()) {
+                        completed = true;
+                        return false;
+                    }
+                }
+                mScheduled.set(false);
+                // an event may be added after the last poll, but before the flag is cleared
+                if (isEmpty() || !mScheduled.compareAndSet(false, true)) {
+                    break;
+                }
+            }
+            completed = true;
+            return true;
+        } finally {
+            if (!completed) {
+                mScheduled.set(false);
+                // an offer which sees the flag set doesn't schedule, so the flag is only kept with a drain scheduled
+                if (!isEmpty() && mScheduled.compareAndSet(false, true)) {
+                    mConsumer.reschedule();
+                }
+            }
+        }
+    }
+
+    private Object poll() {
+        if (++mPolled % STARVATION_LIMIT == 0) {
+            int lowerLanes = mLanes.length - 1;
+            int turn = mShares++ % lowerLanes;
+            for (int i = 0; i < lowerLanes; i++) {
+                Object event = poll(1 + (turn + i) % lowerLanes);
+                if (event != null) {
+                    return event;
+                }
+            }
+        }
+        for (int lane = 0; lane < mLanes.length; lane++) {
+            Object event = poll(lane);
+            if (event != null) {
+                return event;
+            }
+        }
+        return null;
+    }
+
+    private Object poll(int lane) {
+        Object event = mLanes[lane].poll();
+        if (event != null) {
+            mDepths.decrementAndGet(lane);
+        }
+        return event;
+    }
+
+    /**
+     * @return the count of the events waiting in all the lanes
+     */
+    int depth() {
+        int depth = 0;
+        for (int i = 0; i < mDepths.length(); i++) {
+            depth += mDepths.get(i);
+        }
+        return depth;
+    }
+
+    private boolean isEmpty() {
+        for (Queue<Object> lane : mLanes) {
+            if (!lane.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    interface Consumer {
+
+        void accept(Object event);
+
+        /**
+         * schedule the next drain, after a subscriber threw and events are left
+         */
+        void reschedule();
+    }
+}
@@ -0,0 +1,62 @@
+package com.yxkang.rxandroid;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <h1>EventTypes</h1>
+ * resolve and cache all the types an event can be dispatched to, using in {@link RxEventBus}
+ * for looking up the subscribers of an event without checking every subscriber by <code>instanceof</code>
+ */
+final class EventTypes {
+
+    private static final Class<?>[] NULL_EVENT_TYPES = {Object.class};
+    private static final ConcurrentMap<Class<?>, Class<?>[]> sCache = new ConcurrentHashMap<>();
+
+    private EventTypes() {
+    }
+
+    /**
+     * get the class, all the super classes and all the interfaces of an event
+     *
+     * @param event the event
+     * @return the types, the most specific type first and {@link Object} last
+     */
+    static Class<?>[] of(Object event) {
+        if (event == null) {
+            return NULL_EVENT_TYPES;
+        }
+        Class<?> eventClass = event.getClass();
+        Class<?>[] types = sCache.get(eventClass);
+        if (types == null) {
+            types = resolve(eventClass);
+            Class<?>[] previous = sCache.putIfAbsent(eventClass, types);
+            if (previous != null) {
+                types = previous;
+            }
+        }
+        return types;
+    }
+
+    private static Class<?>[] resolve(Class<?> eventClass) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> clazz = eventClass; clazz != null; clazz = clazz.getSuperclass()) {
+            types.add(clazz);
+            addInterfaces(types, clazz.getInterfaces());
+        }
+        // keep Object at the end, interfaces have no super class
+        types.remove(Object.class);
+        types.add(Object.class);
+        return types.toArray(new Class<?>[types.size()]);
+    }
+
+    private static void addInterfaces(Set<Class<?>> types, Class<?>[] interfaces) {
+        for (Class<?> clazz : interfaces) {
+            if (types.add(clazz)) {
+                addInterfaces(types, clazz.getInterfaces());
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.Executor;
+
+/**
+ * <h1>ExecutorDispatcher</h1>
+ * a {@link MainThreadDispatcher} delivering the events in an {@link Executor}, so the bus runs on a plain JVM.
+ * the executor must run one task at a time, otherwise the events are delivered out of order.
+ * the delivery thread is the thread which ran the latest drain
+ */
+public class ExecutorDispatcher implements MainThreadDispatcher {
+
+    private final Executor mExecutor;
+    private volatile Thread mThread;
+
+    /**
+     * deliver the events in a new daemon thread, which is terminated after it is idle for a while
+     */
+    public ExecutorDispatcher() {
+        this(ThreadModeExecutors.newExecutor(1, "RxEventBus-main"));
+    }
+
+    /**
+     * @param executor a serial executor
+     */
+    public ExecutorDispatcher(Executor executor) {
+        mExecutor = executor;
+    }
+
+    @Override
+    public boolean isMainThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    @Override
+    public void dispatch(final Runnable drain) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mThread = Thread.currentThread();
+                drain.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>FrameDispatcher</h1>
+ * a {@link MainThreadDispatcher} which can defer a drain to the next frame, so the events left by a drain
+ * whose frame budget is used up don't hold back the frame, see {@link RxEventBus#setFrameBudget(long, java.util.concurrent.TimeUnit)}.
+ * the drains of the other dispatchers are continued by {@link #dispatch(Runnable)}
+ */
+public interface FrameDispatcher extends MainThreadDispatcher {
+
+    /**
+     * run the drain in the delivery thread at the next frame, it is called in the delivery thread
+     *
+     * @param drain the drain
+     */
+    void dispatchNextFrame(Runnable drain);
+}
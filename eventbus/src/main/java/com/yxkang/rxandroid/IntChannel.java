@@ -0,0 +1,74 @@
+package com.yxkang.rxandroid;
+
+import rx.Subscription;
+
+/**
+ * <h1>IntChannel</h1>
+ * a {@link PrimitiveChannel} of {@code int} values.
+ * the values posted to main thread from other threads are conflated to the latest one, unlike
+ * {@link RxEventBus#post(Object)}, use {@link #accumulate(int)} for increments, or {@link #post(int, boolean)}
+ * to deliver every value in the posting thread
+ *
+ * @see RxEventBus#intChannel(String)
+ */
+public final class IntChannel extends PrimitiveChannel {
+
+    IntChannel(RxEventBus bus, String name) {
+        super(bus, name);
+    }
+
+    /**
+     * post the value in main thread. a value posted from another thread is conflated: if the values are posted
+     * faster than main thread delivers them, only the latest one is delivered and the others are dropped
+     *
+     * @param value the value
+     */
+    public void post(int value) {
+        postBits(value);
+    }
+
+    /**
+     * post the value
+     *
+     * @param value      the value
+     * @param mainThread {@code true} post the value in main thread like {@link #post(int)}, otherwise deliver it
+     *                   in current thread at once
+     */
+    public void post(int value, boolean mainThread) {
+        postBits(value, mainThread);
+    }
+
+    /**
+     * add the delta to the latest value atomically and post the sum in main thread like {@link #post(int)},
+     * so the sums posted from other threads are conflated without losing an increment, e.g. a count of bytes
+     *
+     * @param delta the delta
+     * @return the sum
+     */
+    public int accumulate(int delta) {
+        // the low 32 bits of the long sum wrap around like an int sum
+        return (int) accumulateBits(delta);
+    }
+
+    /**
+     * @param listener the listener
+     * @return the subscription to remove the listener
+     */
+    public Subscription addListener(Listener listener) {
+        return add(listener);
+    }
+
+    @Override
+    void call(Object listener, long bits) {
+        ((Listener) listener).onValue((int) bits);
+    }
+
+    /**
+     * <h1>Listener</h1>
+     * the listener of a {@link IntChannel}
+     */
+    public interface Listener {
+
+        void onValue(int value);
+    }
+}
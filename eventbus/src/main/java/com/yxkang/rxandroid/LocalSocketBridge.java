@@ -0,0 +1,56 @@
+package com.yxkang.rxandroid;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+
+import java.io.IOException;
+
+/**
+ * <h1>LocalSocketBridge</h1>
+ * connect an {@link EventBridge} over an android unix domain socket in the abstract namespace.
+ * one process listens with {@link LocalServerSocket} and {@link #accept(EventBridge, LocalServerSocket)},
+ * the other one calls {@link #connect(EventBridge, String)} with the same name
+ */
+public final class LocalSocketBridge {
+
+    private LocalSocketBridge() {
+    }
+
+    /**
+     * @param bridge a bridge which is not started
+     * @param name   the name of the socket
+     * @return the connected socket, which is closed when the bridge is closed
+     * @throws IOException if the socket can not be connected
+     */
+    public static LocalSocket connect(EventBridge bridge, String name) throws IOException {
+        LocalSocket socket = new LocalSocket();
+        try {
+            socket.connect(new LocalSocketAddress(name));
+            bridge.start(socket.getInputStream(), socket.getOutputStream());
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    /**
+     * block until the other process connects
+     *
+     * @param bridge a bridge which is not started
+     * @param server the listening socket
+     * @return the accepted socket, which is closed when the bridge is closed
+     * @throws IOException if the socket can not be accepted
+     */
+    public static LocalSocket accept(EventBridge bridge, LocalServerSocket server) throws IOException {
+        LocalSocket socket = server.accept();
+        try {
+            bridge.start(socket.getInputStream(), socket.getOutputStream());
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+}
@@ -0,0 +1,73 @@
+package com.yxkang.rxandroid;
+
+import rx.Subscription;
+
+/**
+ * <h1>LongChannel</h1>
+ * a {@link PrimitiveChannel} of {@code long} values.
+ * the values posted to main thread from other threads are conflated to the latest one, unlike
+ * {@link RxEventBus#post(Object)}, use {@link #accumulate(long)} for increments, or {@link #post(long, boolean)}
+ * to deliver every value in the posting thread
+ *
+ * @see RxEventBus#longChannel(String)
+ */
+public final class LongChannel extends PrimitiveChannel {
+
+    LongChannel(RxEventBus bus, String name) {
+        super(bus, name);
+    }
+
+    /**
+     * post the value in main thread. a value posted from another thread is conflated: if the values are posted
+     * faster than main thread delivers them, only the latest one is delivered and the others are dropped
+     *
+     * @param value the value
+     */
+    public void post(long value) {
+        postBits(value);
+    }
+
+    /**
+     * post the value
+     *
+     * @param value      the value
+     * @param mainThread {@code true} post the value in main thread like {@link #post(long)}, otherwise deliver it
+     *                   in current thread at once
+     */
+    public void post(long value, boolean mainThread) {
+        postBits(value, mainThread);
+    }
+
+    /**
+     * add the delta to the latest value atomically and post the sum in main thread like {@link #post(long)},
+     * so the sums posted from other threads are conflated without losing an increment, e.g. a count of bytes
+     *
+     * @param delta the delta
+     * @return the sum
+     */
+    public long accumulate(long delta) {
+        return accumulateBits(delta);
+    }
+
+    /**
+     * @param listener the listener
+     * @return the subscription to remove the listener
+     */
+    public Subscription addListener(Listener listener) {
+        return add(listener);
+    }
+
+    @Override
+    void call(Object listener, long bits) {
+        ((Listener) listener).onValue(bits);
+    }
+
+    /**
+     * <h1>Listener</h1>
+     * the listener of a {@link LongChannel}
+     */
+    public interface Listener {
+
+        void onValue(long value);
+    }
+}
@@ -0,0 +1,56 @@
+package com.yxkang.rxandroid;
+
+import android.os.Build;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * <h1>LooperDispatcher</h1>
+ * a {@link MainThreadDispatcher} delivering the events in the thread of a {@link Looper},
+ * the thread of the looper is kept so the thread check doesn't call {@link Looper} at all.
+ * the deferred drains run in the frame callback of {@link Choreographer} since jelly bean, and by a message before
+ */
+public class LooperDispatcher implements FrameDispatcher {
+
+    private final Thread mThread;
+    private final MessageHandler mHandler;
+
+    public LooperDispatcher(Looper looper) {
+        mThread = looper.getThread();
+        mHandler = new MessageHandler(looper);
+    }
+
+    @Override
+    public boolean isMainThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    @Override
+    public void dispatch(Runnable drain) {
+        mHandler.postAsynchronous(drain);
+    }
+
+    @Override
+    public void dispatchNextFrame(Runnable drain) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            FrameCallbacks.post(drain);
+        } else {
+            mHandler.postAsynchronous(drain);
+        }
+    }
+
+    /**
+     * keep {@link Choreographer} out of the dispatcher class, which is loaded before jelly bean too
+     */
+    private static final class FrameCallbacks {
+
+        static void post(final Runnable drain) {
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    drain.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>MainThreadDispatcher</h1>
+ * the thread {@link RxEventBus} delivers the events posted by {@link RxEventBus#post(Object)} in.
+ * it is the android main thread by default, see {@link LooperDispatcher}, and any serial executor on a plain JVM,
+ * see {@link ExecutorDispatcher}
+ */
+public interface MainThreadDispatcher {
+
+    /**
+     * @return {@code true} if the current thread is the delivery thread, it is called on every post
+     */
+    boolean isMainThread();
+
+    /**
+     * run the drain of the queued events in the delivery thread, the bus never schedules a drain
+     * before the previous one is run
+     *
+     * @param drain the drain
+     */
+    void dispatch(Runnable drain);
+}
@@ -1,12 +1,13 @@
 package com.yxkang.rxandroid;
 
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 
 /**
  * <h1>MessageHandler</h1>
- * a subclass of {@link Handler}, using in {@link RxEventBus} for posting message to main thread
+ * a subclass of {@link Handler}, using in {@link LooperDispatcher} for posting message to main thread
  */
 class MessageHandler extends Handler {
 
@@ -14,6 +15,20 @@ class MessageHandler extends Handler {
         super(looper);
     }
 
+    /**
+     * post the runnable by a message from the message pool, the message is asynchronous
+     * so it can't be held back by a sync barrier
+     *
+     * @param r the runnable
+     */
+    public void postAsynchronous(Runnable r) {
+        Message msg = Message.obtain(this, r);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP_MR1) {
+            msg.setAsynchronous(true);
+        }
+        sendMessage(msg);
+    }
+
     @Override
     public void handleMessage(Message msg) {
         super.handleMessage(msg);
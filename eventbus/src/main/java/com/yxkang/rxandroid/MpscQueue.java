@@ -0,0 +1,65 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <h1>MpscQueue</h1>
+ * an unbounded lock-free linked queue of many producers and a single consumer.
+ * a producer swaps the tail and links the previous node, one atomic exchange without a retry loop,
+ * and the consumer reads the head without any atomic operation.
+ * a producer which has swapped the tail but not linked yet hides the nodes behind it, so the consumer waits for
+ * the link rather than reading the end of the queue, otherwise the drain of {@link MpscSubject} could account for
+ * an element it hasn't seen, and a later notification of the same producer would overtake it
+ *
+ * @param <E> the element type, not {@code null}
+ */
+final class MpscQueue<E> {
+
+    private final AtomicReference<Node<E>> mTail;
+    /**
+     * the stub node before the first element, only accessed by the consumer
+     */
+    private Node<E> mHead;
+
+    MpscQueue() {
+        Node<E> stub = new Node<>(null);
+        mHead = stub;
+        mTail = new AtomicReference<>(stub);
+    }
+
+    void offer(E e) {
+        Node<E> node = new Node<>(e);
+        mTail.getAndSet(node).mNext = node;
+    }
+
+    /**
+     * @return the first element, or {@code null} if the queue is empty, it is called by the consumer only
+     */
+    E poll() {
+        Node<E> head = mHead;
+        Node<E> next = head.mNext;
+        if (next == null) {
+            if (head == mTail.get()) {
+                return null;
+            }
+            // a producer is between the swap and the link, it takes a few instructions
+            while ((next = head.mNext) == null) {
+                Thread.yield();
+            }
+        }
+        E e = next.mValue;
+        next.mValue = null;
+        mHead = next;
+        return e;
+    }
+
+    private static final class Node<E> {
+
+        E mValue;
+        volatile Node<E> mNext;
+
+        Node(E value) {
+            mValue = value;
+        }
+    }
+}
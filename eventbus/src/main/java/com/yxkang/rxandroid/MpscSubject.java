@@ -0,0 +1,150 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.subjects.Subject;
+
+/**
+ * <h1>MpscSubject</h1>
+ * serialize the notifications of many threads to a subject without a lock, instead of
+ * {@link rx.subjects.SerializedSubject} whose synchronized emitter loop convoys the threads under contention.
+ * <p>
+ * a thread which finds the subject idle emits at once. otherwise it queues the notification in a {@link MpscQueue}
+ * and leaves, and the thread which is emitting drains the queue before it leaves, so the notifications are never
+ * emitted at the same time. the work in progress counter decides the draining thread, every notification adds 1
+ * and the drain subtracts what it has seen. a queued {@link RecyclableEvent} is retained until it is emitted.
+ * the draining thread keeps draining while the others keep posting, so a thread which finds more than
+ * {@link #MAX_BACKLOG} notifications queued yields a few times before it queues its own. it bounds the queue when
+ * the posting threads outrun the subscribers, and never blocks a thread which posts from a subscriber
+ * </p>
+ *
+ * @param <T> data model
+ */
+final class MpscSubject<T> extends Subject<T, T> {
+
+    /**
+     * {@link MpscQueue} doesn't permit {@code null}
+     */
+    private static final Object NULL = new Object();
+    private static final int MAX_BACKLOG = 1024;
+    private static final int MAX_YIELDS = 64;
+
+    private final Subject<T, T> mActual;
+    private final MpscQueue<Object> mQueue = new MpscQueue<>();
+    private final AtomicInteger mWip = new AtomicInteger();
+    /**
+     * only accessed by the draining thread, the counter orders the accesses of the successive drains
+     */
+    private boolean mDone;
+
+    MpscSubject(final Subject<T, T> actual) {
+        super(new OnSubscribe<T>() {
+            @Override
+            public void call(Subscriber<? super T> child) {
+                actual.unsafeSubscribe(child);
+            }
+        });
+        mActual = actual;
+    }
+
+    @Override
+    public void onNext(T t) {
+        if (mWip.get() == 0 && mWip.compareAndSet(0, 1)) {
+            drain(t == null ? NULL : t);
+        } else {
+            for (int i = 0; i < MAX_YIELDS && mWip.get() > MAX_BACKLOG; i++) {
+                Thread.yield();
+            }
+            RecyclableEvent.retain(t);
+            mQueue.offer(t == null ? NULL : t);
+            if (mWip.getAndIncrement() == 0) {
+                drain(null);
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        emitTerminal(new Terminal(e));
+    }
+
+    @Override
+    public void onCompleted() {
+        emitTerminal(new Terminal(null));
+    }
+
+    @Override
+    public boolean hasObservers() {
+        return mActual.hasObservers();
+    }
+
+    private void emitTerminal(Terminal terminal) {
+        mQueue.offer(terminal);
+        if (mWip.getAndIncrement() == 0) {
+            drain(null);
+        }
+    }
+
+    /**
+     * emit the notification of the current thread, then the queued ones until the counter drops to 0.
+     * a throwing subscriber doesn't stop the drain, otherwise the subject would be left busy forever,
+     * the first failure is thrown after the drain
+     *
+     * @param first the notification of the current thread, or {@code null} if it is queued
+     */
+    private void drain(Object first) {
+        Throwable failure = first == null ? null : emit(first, null);
+        int missed = 1;
+        while (true) {
+            Object o;
+            while ((o = mQueue.poll()) != null) {
+                try {
+                    failure = emit(o, failure);
+                } finally {
+                    RecyclableEvent.release(o);
+                }
+            }
+            missed = mWip.addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+        if (failure != null) {
+            throw Exceptions.propagate(failure);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Throwable emit(Object o, Throwable failure) {
+        if (mDone) {
+            return failure;
+        }
+        try {
+            if (o instanceof Terminal) {
+                mDone = true;
+                Throwable error = ((Terminal) o).mError;
+                if (error != null) {
+                    mActual.onError(error);
+                } else {
+                    mActual.onCompleted();
+                }
+            } else {
+                mActual.onNext(o == NULL ? null : (T) o);
+            }
+        } catch (Throwable e) {
+            return failure != null ? failure : e;
+        }
+        return failure;
+    }
+
+    private static final class Terminal {
+
+        final Throwable mError;
+
+        Terminal(Throwable error) {
+            mError = error;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.yxkang.rxandroid;
+
+import rx.Subscriber;
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.functions.Action1;
+import rx.functions.Func1;
+
+/**
+ * <h1>PartitionSubscriber</h1>
+ * spread the events of a subscription over serial lanes by the hash of their keys, the events of a key are
+ * delivered in their order, and the events of the keys in different lanes are delivered in parallel.
+ * the lanes run on the {@link ThreadMode#ASYNC} pool.
+ * it is a terminal subscriber calling a handler, because the handler is called from many threads at once,
+ * which an {@link rx.Observer} down the chain doesn't allow
+ *
+ * @param <T> data model
+ */
+final class PartitionSubscriber<T> extends Subscriber<T> {
+
+    private final Func1<? super T, ?> mKeySelector;
+    private final Action1<? super T> mOnNext;
+    private final SerialLane[] mLanes;
+
+    PartitionSubscriber(Func1<? super T, ?> keySelector, int lanes, Action1<? super T> onNext) {
+        mKeySelector = keySelector;
+        mOnNext = onNext;
+        mLanes = new SerialLane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            mLanes[i] = new SerialLane(ThreadModeExecutors.async());
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        throw new OnErrorNotImplementedException(e);
+    }
+
+    @Override
+    public void onNext(final T t) {
+        SerialLane lane = mLanes[lane(mKeySelector.call(t), mLanes.length)];
+        RecyclableEvent.retain(t);
+        lane.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!isUnsubscribed()) {
+                        mOnNext.call(t);
+                    }
+                } finally {
+                    RecyclableEvent.release(t);
+                }
+            }
+        });
+    }
+
+    static int lane(Object key, int lanes) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % lanes;
+    }
+}
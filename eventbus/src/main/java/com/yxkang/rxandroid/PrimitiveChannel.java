@@ -0,0 +1,182 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import rx.Subscription;
+
+/**
+ * <h1>PrimitiveChannel</h1>
+ * a named channel of one primitive value, e.g. a progress percentage, with its own listeners.
+ * the value is delivered by a loop over an array of listeners, without boxing, wrapper event or Rx operators.
+ * every channel keeps its value as the 64 bits of a {@code long}, so the listeners and the fan-out are shared here,
+ * and a subclass only calls its own listener type with the value.
+ * <p>
+ * unlike {@link RxEventBus#post(Object)}, a value posted to main thread from other threads is conflated:
+ * only the latest value is delivered, by one reused delivery, the values posted before it are never delivered,
+ * so a posted value should be a state rather than an increment.
+ * the increments of an int or long channel are added to the latest value by {@link IntChannel#accumulate(int)}
+ * and {@link LongChannel#accumulate(long)}, so the conflated sums lose none of them.
+ * a value posted in the current thread is delivered to the listeners at once, every value
+ * </p>
+ *
+ * @see RxEventBus#intChannel(String)
+ * @see RxEventBus#longChannel(String)
+ * @see RxEventBus#doubleChannel(String)
+ */
+public abstract class PrimitiveChannel {
+
+    private static final Object[] EMPTY = new Object[0];
+    private static final AtomicLongFieldUpdater<PrimitiveChannel> LATEST =
+            AtomicLongFieldUpdater.newUpdater(PrimitiveChannel.class, "mLatest");
+
+    private final String mName;
+    private final RxEventBus mBus;
+    private final AtomicBoolean mPending = new AtomicBoolean();
+    private final Delivery mDelivery = new Delivery() {
+        @Override
+        public void run() {
+            mPending.set(false);
+            deliver(mLatest);
+        }
+    };
+    /**
+     * copied on write, the listeners are read without a lock
+     */
+    private volatile Object[] mListeners = EMPTY;
+    /**
+     * the bits of the latest value
+     */
+    private volatile long mLatest;
+
+    PrimitiveChannel(RxEventBus bus, String name) {
+        mBus = bus;
+        mName = name;
+    }
+
+    /**
+     * @return the name of the channel
+     */
+    public final String getName() {
+        return mName;
+    }
+
+    /**
+     * remove all the listeners
+     */
+    public final synchronized void clear() {
+        mListeners = EMPTY;
+    }
+
+    final Subscription add(final Object listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener == null");
+        }
+        synchronized (this) {
+            Object[] listeners = mListeners;
+            Object[] added = new Object[listeners.length + 1];
+            System.arraycopy(listeners, 0, added, 0, listeners.length);
+            added[listeners.length] = listener;
+            mListeners = added;
+        }
+        return new Subscription() {
+            private volatile boolean mUnsubscribed;
+
+            @Override
+            public void unsubscribe() {
+                if (!mUnsubscribed) {
+                    mUnsubscribed = true;
+                    remove(listener);
+                }
+            }
+
+            @Override
+            public boolean isUnsubscribed() {
+                return mUnsubscribed;
+            }
+        };
+    }
+
+    private synchronized void remove(Object listener) {
+        Object[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                Object[] removed = new Object[listeners.length - 1];
+                System.arraycopy(listeners, 0, removed, 0, i);
+                System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+                mListeners = removed;
+                return;
+            }
+        }
+    }
+
+    /**
+     * post the value in main thread, the values posted from other threads are conflated to the latest one
+     *
+     * @param bits the bits of the value
+     */
+    final void postBits(long bits) {
+        mLatest = bits;
+        if (postLatest()) {
+            deliver(bits);
+        }
+    }
+
+    /**
+     * @param bits       the bits of the value
+     * @param mainThread {@code true} post the value like {@link #postBits(long)}, otherwise deliver it at once
+     */
+    final void postBits(long bits, boolean mainThread) {
+        if (mainThread) {
+            postBits(bits);
+        } else {
+            deliver(bits);
+        }
+    }
+
+    /**
+     * add the delta to the latest value atomically and post the sum like {@link #postBits(long)}
+     *
+     * @param delta the delta
+     * @return the sum
+     */
+    final long accumulateBits(long delta) {
+        long sum = LATEST.addAndGet(this, delta);
+        if (postLatest()) {
+            deliver(sum);
+        }
+        return sum;
+    }
+
+    /**
+     * @return {@code true} if it is main thread and the caller delivers the value,
+     * {@code false} if the value is left to the pending delivery
+     */
+    private boolean postLatest() {
+        if (mBus.isShutdown()) {
+            return false;
+        }
+        if (mBus.isMainThread()) {
+            return true;
+        }
+        if (mPending.compareAndSet(false, true)) {
+            mBus.enqueue(mDelivery, Priority.NORMAL);
+        }
+        return false;
+    }
+
+    private void deliver(long bits) {
+        Object[] listeners = mListeners;
+        for (Object listener : listeners) {
+            call(listener, bits);
+        }
+    }
+
+    /**
+     * call a listener of the channel
+     *
+     * @param listener the listener, of the listener type of the channel
+     * @param bits     the bits of the value
+     */
+    abstract void call(Object listener, long bits);
+}
@@ -0,0 +1,24 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>Priority</h1>
+ * the lane of an event queued to main thread, see {@link RxEventBus#post(Object, Priority)}.
+ * the higher lanes are always drained first, but a lower lane still gets a share while the higher lanes are busy
+ */
+public enum Priority {
+
+    /**
+     * user visible state changes
+     */
+    HIGH,
+
+    /**
+     * the default priority of {@link RxEventBus#post(Object)}
+     */
+    NORMAL,
+
+    /**
+     * telemetry and other events nobody is waiting for
+     */
+    LOW
+}
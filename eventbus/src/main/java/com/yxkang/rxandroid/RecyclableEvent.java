@@ -0,0 +1,91 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * <h1>RecyclableEvent</h1>
+ * a reference counted event which goes back to its {@link EventPool} when the last reference is released.
+ * <p>
+ * an event is created or obtained with one reference owned by the caller, and posting it hands the reference over
+ * to the bus. the bus releases it when all the subscribers are done: the subscribers in the posting thread or in
+ * main thread are done when they return, and the bus holds a reference for every event waiting in a thread mode,
+ * buffer, partition lane, delayed post or bridge. a subscriber which keeps the event after it returns,
+ * e.g. by {@code observeOn}, must {@link #retain()} it and {@link #release()} it when it is done.
+ * a recyclable event can't be sticky or periodic
+ * </p>
+ */
+public abstract class RecyclableEvent {
+
+    private static final AtomicIntegerFieldUpdater<RecyclableEvent> REF_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(RecyclableEvent.class, "mRefCount");
+
+    private volatile int mRefCount = 1;
+    /**
+     * the pool of the event, or {@code null} if it is created without a pool
+     */
+    EventPool<?> mPool;
+
+    /**
+     * add a reference to the event
+     *
+     * @return this event
+     * @throws IllegalStateException if the event is recycled already
+     */
+    public final RecyclableEvent retain() {
+        while (true) {
+            int count = mRefCount;
+            if (count <= 0) {
+                throw new IllegalStateException("the event is recycled");
+            }
+            if (REF_COUNT.compareAndSet(this, count, count + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * remove a reference from the event, the event is reset and goes back to its pool with the last one
+     *
+     * @throws IllegalStateException if the event is released more times than it is retained
+     */
+    public final void release() {
+        int count = REF_COUNT.decrementAndGet(this);
+        if (count == 0) {
+            EventPool<?> pool = mPool;
+            if (pool != null) {
+                pool.recycle(this);
+            }
+        } else if (count < 0) {
+            throw new IllegalStateException("the event is released too many times");
+        }
+    }
+
+    /**
+     * @return the count of the references
+     */
+    public final int refCount() {
+        return mRefCount;
+    }
+
+    /**
+     * clear the fields before the event goes back to the pool, it does nothing by default
+     */
+    protected void reset() {
+    }
+
+    final void onObtain() {
+        mRefCount = 1;
+    }
+
+    static void retain(Object event) {
+        if (event instanceof RecyclableEvent) {
+            ((RecyclableEvent) event).retain();
+        }
+    }
+
+    static void release(Object event) {
+        if (event instanceof RecyclableEvent) {
+            ((RecyclableEvent) event).release();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>Routable</h1>
+ * an event with a routing key, e.g. the conversation of a message event.
+ * it is delivered to the subscribers of {@link RxEventBus#ofType(Class, Object)} of its key by a hash lookup,
+ * the key must implement {@link Object#equals(Object)} and {@link Object#hashCode()}
+ */
+public interface Routable {
+
+    /**
+     * @return the routing key, an event of {@code null} key is only delivered to the subscribers of its type
+     */
+    Object getRoutingKey();
+}
@@ -0,0 +1,113 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+/**
+ * <h1>RoutingIndex</h1>
+ * the subjects of {@link RxEventBus#ofType(Class, Object)} indexed by event type and routing key,
+ * so a {@link Routable} event costs one lookup per type however many keys are subscribed.
+ * a route is created by its first subscriber and removed with its last one
+ */
+final class RoutingIndex {
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Object, Route>> mRoutes = new ConcurrentHashMap<>();
+    private boolean mCompleted;
+
+    @SuppressWarnings("unchecked")
+    <T> Observable<T> observe(final Class<T> eventType, final Object key) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                final Route route = acquire(eventType, key);
+                return ((Observable<T>) (Observable<?>) route.mSubject).doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        release(eventType, key, route);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * push the event to the routes of its key and types
+     */
+    void dispatch(Routable event, Class<?>[] types) {
+        if (mRoutes.isEmpty()) {
+            return;
+        }
+        Object key = event.getRoutingKey();
+        if (key == null) {
+            return;
+        }
+        for (Class<?> type : types) {
+            ConcurrentMap<Object, Route> routes = mRoutes.get(type);
+            if (routes != null) {
+                Route route = routes.get(key);
+                if (route != null) {
+                    route.mSubject.onNext(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * complete all the routes, the later subscribers are completed immediately
+     */
+    synchronized void complete() {
+        mCompleted = true;
+        for (ConcurrentMap<Object, Route> routes : mRoutes.values()) {
+            for (Route route : routes.values()) {
+                route.mSubject.onCompleted();
+            }
+        }
+        mRoutes.clear();
+    }
+
+    private synchronized Route acquire(Class<?> eventType, Object key) {
+        if (mCompleted) {
+            Route route = new Route();
+            route.mSubject.onCompleted();
+            return route;
+        }
+        ConcurrentMap<Object, Route> routes = mRoutes.get(eventType);
+        if (routes == null) {
+            routes = new ConcurrentHashMap<>();
+            mRoutes.put(eventType, routes);
+        }
+        Route route = routes.get(key);
+        if (route == null) {
+            route = new Route();
+            routes.put(key, route);
+        }
+        route.mCount++;
+        return route;
+    }
+
+    private synchronized void release(Class<?> eventType, Object key, Route route) {
+        if (mCompleted || --route.mCount > 0) {
+            return;
+        }
+        ConcurrentMap<Object, Route> routes = mRoutes.get(eventType);
+        routes.remove(key);
+        if (routes.isEmpty()) {
+            mRoutes.remove(eventType);
+        }
+    }
+
+    private static final class Route {
+
+        final Subject<Object, Object> mSubject = new MpscSubject<>(PublishSubject.create());
+        /**
+         * the count of the subscribers, guarded by the index
+         */
+        int mCount;
+    }
+}
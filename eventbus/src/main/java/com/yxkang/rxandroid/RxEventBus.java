@@ -1,19 +1,24 @@
 package com.yxkang.rxandroid;
 
 import android.os.Looper;
-import android.util.Log;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
+import rx.Subscriber;
 import rx.Subscription;
+import rx.exceptions.Exceptions;
+import rx.functions.Action1;
+import rx.functions.Action2;
+import rx.functions.Func1;
 import rx.subjects.PublishSubject;
-import rx.subjects.SerializedSubject;
 import rx.subjects.Subject;
-import rx.subscriptions.CompositeSubscription;
-import rx.subscriptions.Subscriptions;
 
 /**
  * <h1>RxEventBus</h1>
@@ -37,8 +42,35 @@ import rx.subscriptions.Subscriptions;
  * <pre class="prettyprint">
  * RxEventBus.getInstance().unsubscribe(this);
  * </pre>
+ * <h1>Subscribe Annotation</h1>
+ * <p>Or mark the event handlers with {@link Subscribe}, and register them all by one call:</p>
+ * <pre class="prettyprint">
+ * <code>@Subscribe</code>
+ * void onMessageEvent(MessageEvent messageEvent) {
+ * &nbsp;&nbsp;// do something on the messageEvent
+ * }
+ * <p/>
+ * // once, when the application is created
+ * RxEventBus.getInstance().addIndex(new MyEventBusIndex());
+ * <p/>
+ * RxEventBus.getInstance().register(this);
+ * </pre>
+ * <p>{@code MyEventBusIndex} is generated by the {@code eventbus-compiler} annotation processor,
+ * named by the processor option {@code rxEventBusIndex}</p>
  * <h1>Post Event</h1>
- * <p>The event will always be post in android main thread, no matter where you called {@link RxEventBus#post(Object)}</p>
+ * <p>The event will always be post in android main thread, no matter where you called {@link RxEventBus#post(Object)}.
+ * an event bus created by {@link #RxEventBus(MainThreadDispatcher)} posts the event in the thread of the dispatcher</p>
+ * <h1>Scoped Event Bus</h1>
+ * <p>A feature or a screen can have its own event bus, so its posts only fan out to its own subscribers,
+ * the selected event types are forwarded to the parent bus, and the whole scope is torn down by {@link #shutdown()}:</p>
+ * <pre class="prettyprint">
+ * RxEventBus scope = new RxEventBus.Builder()
+ * &nbsp;&nbsp;&nbsp;&nbsp;.parent(RxEventBus.getInstance())
+ * &nbsp;&nbsp;&nbsp;&nbsp;.forward(LoginEvent.class)
+ * &nbsp;&nbsp;&nbsp;&nbsp;.build();
+ * </pre>
+ * <p>Every event type has its own subject, an event is only pushed to the subscribers of its class,
+ * super classes and interfaces, so the cost of a post doesn't grow with the subscribers of other types</p>
  */
 @SuppressWarnings({"unchecked", "unused"})
 public class RxEventBus {
@@ -46,14 +78,87 @@ public class RxEventBus {
     private static final String TAG = RxEventBus.class.getSimpleName();
     private static volatile RxEventBus sRxEventBus;
 
-    private final Map<Object, CompositeSubscription> mMap = new HashMap<>();
-    private final ReentrantLock mReentrantLock = new ReentrantLock(true);
-    private final MessageHandler mHandler;
-    private final Subject mSubject;
+    private final SubscriberRegistry mRegistry = new SubscriberRegistry();
+    private final CopyOnWriteArrayList<SubscriberIndex> mIndexes = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<Class<?>, SubscriberBinder<Object>> mBinders = new ConcurrentHashMap<>();
+    /**
+     * the latest undelivered event of every conflation key
+     */
+    private final ConcurrentMap<Object, Object> mConflated = new ConcurrentHashMap<>();
+    private final StickyCache mStickyCache = new StickyCache();
+    /**
+     * {@code null} while the metrics are disabled
+     */
+    private volatile BusMetrics mMetrics;
+    /**
+     * {@code null} while no journal is attached
+     */
+    private volatile EventJournal mJournal;
+    private final ConcurrentMap<Class<?>, Subject<Object, Object>> mSubjects = new ConcurrentHashMap<>();
+    private final RoutingIndex mRoutingIndex = new RoutingIndex();
+    private final ThreadLocal<DispatchLoop> mDispatchLoop = new ThreadLocal<DispatchLoop>() {
+        @Override
+        protected DispatchLoop initialValue() {
+            return new DispatchLoop();
+        }
+    };
+    private final ConcurrentMap<String, PrimitiveChannel> mChannels = new ConcurrentHashMap<>();
+    private final EventQueue mQueue;
+    private final MainThreadDispatcher mDispatcher;
+    private final RxEventBus mParent;
+    private final Class<?>[] mForwardTypes;
+    private volatile boolean mShutdown;
+    /**
+     * {@code 0} while the drains have no budget
+     */
+    private volatile long mFrameBudgetNanos;
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            if (mQueue.drain(mFrameBudgetNanos)) {
+                return;
+            }
+            BusMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onDrainDeferred(mQueue.depth());
+            }
+            if (mDispatcher instanceof FrameDispatcher) {
+                ((FrameDispatcher) mDispatcher).dispatchNextFrame(this);
+            } else {
+                mDispatcher.dispatch(this);
+            }
+        }
+    };
 
     private RxEventBus() {
-        mSubject = new SerializedSubject<>(PublishSubject.create());
-        mHandler = new MessageHandler(Looper.getMainLooper());
+        this(new LooperDispatcher(Looper.getMainLooper()));
+    }
+
+    /**
+     * create an event bus delivering the events in the thread of the dispatcher,
+     * use {@link #getInstance()} for the event bus of android main thread
+     *
+     * @param dispatcher the delivery thread, e.g. {@link ExecutorDispatcher} on a plain JVM
+     */
+    public RxEventBus(MainThreadDispatcher dispatcher) {
+        this(dispatcher, null, new Class<?>[0]);
+    }
+
+    private RxEventBus(MainThreadDispatcher dispatcher, RxEventBus parent, Class<?>[] forwardTypes) {
+        mDispatcher = dispatcher;
+        mParent = parent;
+        mForwardTypes = forwardTypes;
+        mQueue = new EventQueue(new EventQueue.Consumer() {
+            @Override
+            public void accept(Object event) {
+                dispatch(event);
+            }
+
+            @Override
+            public void reschedule() {
+                mDispatcher.dispatch(mDrain);
+            }
+        });
     }
 
     public static RxEventBus getInstance() {
@@ -68,22 +173,262 @@ public class RxEventBus {
     }
 
     /**
-     * post an event to event bus, the event will always be posted in main Thread
+     * post an event to event bus, the event will always be posted in main Thread.
+     * the events posted from other threads are queued and delivered as a batch by one message
      *
      * @param event the event
      * @see #post(Object, boolean)
+     * @see #post(Object, Priority)
+     */
+    public final void post(Object event) {
+        post(event, Priority.NORMAL);
+    }
+
+    /**
+     * post an event to event bus, the event will always be posted in main Thread.
+     * if it is posted from other threads, it is queued in the lane of the priority,
+     * the events of a higher priority are delivered before the events of lower priorities
+     *
+     * @param event    the event
+     * @param priority the priority of the event
+     * @see #post(Object)
+     * @see #getQueueDepth(Priority)
      */
-    public final void post(final Object event) {
-        if (Looper.myLooper() == Looper.getMainLooper()) {
-            mSubject.onNext(event);
+    public final void post(Object event, Priority priority) {
+        post(event, priority, true);
+    }
+
+    /**
+     * @param journaled {@code false} for an event forwarded by a child bus, which only the child appends
+     */
+    private void post(Object event, Priority priority, boolean journaled) {
+        // the event may be recycled once it is delivered, so the parent gets a reference of its own first
+        boolean forward = forwards(event);
+        if (forward) {
+            RecyclableEvent.retain(event);
+        }
+        if (journaled) {
+            journal(event);
+        }
+        postLocal(event, priority);
+        if (forward) {
+            mParent.post(event, priority, false);
+        }
+    }
+
+    private void postLocal(Object event, Priority priority) {
+        postLocal(event, event, priority);
+    }
+
+    /**
+     * @param dispatched the event, or the {@link Sticky} of the event
+     */
+    private void postLocal(Object event, Object dispatched, Priority priority) {
+        if (mShutdown) {
+            RecyclableEvent.release(event);
+            return;
+        }
+        BusMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onPost(event);
+        }
+        if (isMainThread()) {
+            if (metrics != null) {
+                metrics.onLatency(0);
+            }
+            dispatch(dispatched);
         } else {
-            mHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    mSubject.onNext(event);
-                }
-            });
+            enqueue(metrics == null ? dispatched : new TimedDelivery(dispatched), priority);
+        }
+    }
+
+    /**
+     * post an event to event bus, the event will always be posted in main Thread.
+     * if an event of the same key is still waiting to be delivered, it is replaced by this event,
+     * so only the latest event of a key is delivered however fast they are posted
+     *
+     * @param key   the conflation key, e.g. the download task of a progress event
+     * @param event the event
+     * @see #postConflated(Object, Object, Priority)
+     */
+    public final void postConflated(Object key, Object event) {
+        postConflated(key, event, Priority.NORMAL);
+    }
+
+    /**
+     * post an event to event bus, the event will always be posted in main Thread.
+     * if an event of the same key is still waiting to be delivered, it is replaced by this event and keeps its place
+     * in the queue, so only the latest event of a key is delivered however fast they are posted
+     *
+     * @param key      the conflation key, e.g. the download task of a progress event
+     * @param event    the event
+     * @param priority the priority of the event, ignored if an event of the same key is waiting already
+     * @see #postConflated(Object, Object)
+     */
+    public final void postConflated(Object key, Object event, Priority priority) {
+        if (key == null || event == null) {
+            throw new NullPointerException("key == null || event == null");
+        }
+        postConflated(key, event, priority, true);
+    }
+
+    /**
+     * @param journaled {@code false} for an event forwarded by a child bus, which only the child appends
+     */
+    private void postConflated(Object key, Object event, Priority priority, boolean journaled) {
+        // the event may be recycled once it is delivered, so the parent gets a reference of its own first
+        boolean forward = forwards(event);
+        if (forward) {
+            RecyclableEvent.retain(event);
+        }
+        postConflatedLocal(key, event, priority, journaled);
+        if (forward) {
+            mParent.postConflated(key, event, priority, false);
+        }
+    }
+
+    private void postConflatedLocal(Object key, Object event, Priority priority, boolean journaled) {
+        if (mShutdown) {
+            RecyclableEvent.release(event);
+            return;
+        }
+        if (journaled) {
+            journal(event);
+        }
+        BusMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.onPost(event);
+        }
+        if (isMainThread()) {
+            // the waiting event is older than this one
+            RecyclableEvent.release(mConflated.remove(key));
+            if (metrics != null) {
+                metrics.onLatency(0);
+            }
+            dispatch(event);
+        } else {
+            Object replaced = mConflated.put(key, event);
+            if (replaced == null) {
+                enqueue(new ConflatedDelivery(key, metrics != null), priority);
+            } else {
+                RecyclableEvent.release(replaced);
+            }
+            if (mShutdown) {
+                // shut down meanwhile, the map may be cleared already
+                RecyclableEvent.release(mConflated.remove(key));
+            }
+        }
+    }
+
+    /**
+     * post an event to event bus like {@link #post(Object)}, and keep it as the sticky event of its class when it is
+     * delivered, from then on it is delivered to the subscribers of {@link #ofTypeSticky(Class)} as soon as they subscribe
+     *
+     * @param event the event
+     * @see #ofTypeSticky(Class)
+     * @see #removeStickyEvent(Class)
+     */
+    public final void postSticky(Object event) {
+        if (event == null) {
+            throw new NullPointerException("event == null");
+        }
+        if (event instanceof RecyclableEvent) {
+            throw new IllegalArgumentException("a recyclable event can't be sticky");
+        }
+        postSticky(event, true);
+    }
+
+    /**
+     * @param journaled {@code false} for an event forwarded by a child bus, which only the child appends
+     */
+    private void postSticky(Object event, boolean journaled) {
+        if (!mShutdown) {
+            if (journaled) {
+                journal(event);
+            }
+            postLocal(event, new Sticky(event), Priority.NORMAL);
+        }
+        if (forwards(event)) {
+            mParent.postSticky(event, false);
+        }
+    }
+
+    /**
+     * post an event like {@link #post(Object)} after the delay. all the delayed posts share one timer wheel thread,
+     * scheduling and cancelling cost O(1), and the deadline is rounded up to the 10 milliseconds tick of the wheel
+     *
+     * @param event the event
+     * @param delay the delay
+     * @param unit  the unit of the delay
+     * @return the handle to cancel the post by {@link Subscription#unsubscribe()}, a cancelled recyclable event is
+     * released
+     * @see #postPeriodic(Object, long, long, TimeUnit)
+     */
+    public final Subscription postDelayed(Object event, long delay, TimeUnit unit) {
+        return postPeriodic(event, delay, 0, unit);
+    }
+
+    /**
+     * post the same event like {@link #post(Object)} periodically, until it is cancelled or the bus is shut down.
+     * the periods are counted from the deadlines, not from the deliveries, so they do not drift
+     *
+     * @param event        the event
+     * @param initialDelay the delay of the first post
+     * @param period       the period of the later posts, {@code 0} to post once
+     * @param unit         the unit of the delays
+     * @return the handle to cancel the posts by {@link Subscription#unsubscribe()}
+     * @see #postDelayed(Object, long, TimeUnit)
+     */
+    public final Subscription postPeriodic(Object event, long initialDelay, long period, TimeUnit unit) {
+        if (event == null) {
+            throw new NullPointerException("event == null");
+        }
+        if (initialDelay < 0 || period < 0) {
+            throw new IllegalArgumentException("initialDelay < 0 || period < 0");
         }
+        if (period > 0 && event instanceof RecyclableEvent) {
+            throw new IllegalArgumentException("a recyclable event can't be periodic");
+        }
+        DelayedPost post = new DelayedPost(event);
+        TimerWheel.getDefault().schedule(post, unit.toNanos(initialDelay), unit.toNanos(period));
+        return post;
+    }
+
+    /**
+     * @param eventType eventType
+     * @param <T>       data model
+     * @return the latest delivered sticky event which is an instance of the type, or {@code null}
+     */
+    public final <T> T getStickyEvent(Class<T> eventType) {
+        List<T> events = mStickyCache.get(eventType);
+        return events.isEmpty() ? null : events.get(events.size() - 1);
+    }
+
+    /**
+     * remove the sticky events which are instances of the type
+     *
+     * @param eventType eventType
+     * @return {@code true} if any sticky event is removed
+     */
+    public final boolean removeStickyEvent(Class<?> eventType) {
+        return mStickyCache.remove(eventType);
+    }
+
+    /**
+     * remove all the sticky events
+     */
+    public final void removeAllStickyEvents() {
+        mStickyCache.clear();
+    }
+
+    /**
+     * set the max count of the event classes whose sticky event is kept, the least recently posted class
+     * is evicted first. it is {@value StickyCache#DEFAULT_MAX_SIZE} by default
+     *
+     * @param maxSize the max size
+     */
+    public final void setStickyCacheSize(int maxSize) {
+        mStickyCache.setMaxSize(maxSize);
     }
 
     /**
@@ -93,12 +438,392 @@ public class RxEventBus {
      * @param mainThread {@code true} post the event in main thread, otherwise in current thread
      * @see #post(Object)
      */
-    public final void post(final Object event, boolean mainThread) {
+    public final void post(Object event, boolean mainThread) {
         if (mainThread) {
             post(event);
         } else {
-            mSubject.onNext(event);
+            postInCurrentThread(event, true);
+        }
+    }
+
+    /**
+     * @param journaled {@code false} for an event forwarded by a child bus, which only the child appends
+     */
+    private void postInCurrentThread(Object event, boolean journaled) {
+        boolean forward = forwards(event);
+        if (forward) {
+            RecyclableEvent.retain(event);
+        }
+        if (mShutdown) {
+            RecyclableEvent.release(event);
+        } else {
+            if (journaled) {
+                journal(event);
+            }
+            BusMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onPost(event);
+                metrics.onLatency(0);
+            }
+            dispatch(event);
+        }
+        if (forward) {
+            mParent.postInCurrentThread(event, false);
+        }
+    }
+
+    private void journal(Object event) {
+        EventJournal journal = mJournal;
+        if (journal != null && !mShutdown) {
+            journal.append(event);
+        }
+    }
+
+    /**
+     * post an event read by {@link EventJournal#replay(long, RxEventBus)}, it is not appended to the journal again
+     * and not forwarded to the parent bus
+     */
+    void replay(Object event) {
+        postLocal(event, Priority.NORMAL);
+    }
+
+    /**
+     * append the events of the types registered in the journal before they are delivered, so they can be replayed
+     * after a process death. the events which are only forwarded to this bus by a child bus are not appended
+     *
+     * @param journal the journal, or {@code null} to detach the current one
+     * @see EventJournal#replay(long, RxEventBus)
+     */
+    public final void setJournal(EventJournal journal) {
+        mJournal = journal;
+    }
+
+    /**
+     * get the channel of int values of the name, create it if absent
+     *
+     * @param name the name of the channel
+     * @return the channel
+     * @throws IllegalArgumentException if the name is used by a channel of another type
+     * @see PrimitiveChannel
+     */
+    public final IntChannel intChannel(String name) {
+        PrimitiveChannel channel = mChannels.get(name);
+        if (channel == null) {
+            channel = channel(name, new IntChannel(this, name));
+        }
+        return checkChannel(channel, IntChannel.class);
+    }
+
+    /**
+     * get the channel of long values of the name, create it if absent
+     *
+     * @param name the name of the channel
+     * @return the channel
+     * @throws IllegalArgumentException if the name is used by a channel of another type
+     * @see PrimitiveChannel
+     */
+    public final LongChannel longChannel(String name) {
+        PrimitiveChannel channel = mChannels.get(name);
+        if (channel == null) {
+            channel = channel(name, new LongChannel(this, name));
+        }
+        return checkChannel(channel, LongChannel.class);
+    }
+
+    /**
+     * get the channel of double values of the name, create it if absent
+     *
+     * @param name the name of the channel
+     * @return the channel
+     * @throws IllegalArgumentException if the name is used by a channel of another type
+     * @see PrimitiveChannel
+     */
+    public final DoubleChannel doubleChannel(String name) {
+        PrimitiveChannel channel = mChannels.get(name);
+        if (channel == null) {
+            channel = channel(name, new DoubleChannel(this, name));
+        }
+        return checkChannel(channel, DoubleChannel.class);
+    }
+
+    private PrimitiveChannel channel(String name, PrimitiveChannel created) {
+        PrimitiveChannel previous = mChannels.putIfAbsent(name, created);
+        return previous != null ? previous : created;
+    }
+
+    private static <C extends PrimitiveChannel> C checkChannel(PrimitiveChannel channel, Class<C> type) {
+        if (!type.isInstance(channel)) {
+            throw new IllegalArgumentException("the channel " + channel.getName() + " is a " + channel.getClass().getSimpleName());
+        }
+        return type.cast(channel);
+    }
+
+    /**
+     * @return {@code true} if the event is forwarded to the parent bus
+     */
+    private boolean forwards(Object event) {
+        if (mParent == null) {
+            return false;
+        }
+        for (Class<?> type : mForwardTypes) {
+            if (type.isInstance(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * tear down the event bus: all the subscriptions kept by {@link #subscribe(Object, Subscription)} are unsubscribed,
+     * all the subscribers receive {@code onCompleted}, and the queued, conflated and sticky events are dropped.
+     * the events posted afterwards are still forwarded to the parent bus, but never delivered by this bus
+     *
+     * @throws IllegalStateException if it is the default event bus of {@link #getInstance()}
+     */
+    public final void shutdown() {
+        if (this == sRxEventBus) {
+            throw new IllegalStateException("the default event bus can't be shut down");
+        }
+        mShutdown = true;
+        mRegistry.clear();
+        for (Subject<Object, Object> subject : mSubjects.values()) {
+            subject.onCompleted();
+        }
+        mSubjects.clear();
+        // the queued deliveries of the conflation keys find nothing
+        for (Object key : mConflated.keySet()) {
+            RecyclableEvent.release(mConflated.remove(key));
+        }
+        mRoutingIndex.complete();
+        for (PrimitiveChannel channel : mChannels.values()) {
+            channel.clear();
         }
+        mStickyCache.clear();
+    }
+
+    /**
+     * @return {@code true} if {@link #shutdown()} is called
+     */
+    public final boolean isShutdown() {
+        return mShutdown;
+    }
+
+    /**
+     * @return the parent bus, or {@code null}
+     */
+    public final RxEventBus getParent() {
+        return mParent;
+    }
+
+    /**
+     * @return the dispatch metrics, or {@code null} while they are disabled
+     */
+    BusMetrics metrics() {
+        return mMetrics;
+    }
+
+    boolean isMainThread() {
+        return mDispatcher.isMainThread();
+    }
+
+    /**
+     * queue the event or the {@link Delivery} to main thread
+     */
+    void enqueue(Object event, Priority priority) {
+        if (mQueue.offer(event, priority)) {
+            mDispatcher.dispatch(mDrain);
+        }
+    }
+
+    /**
+     * enable the dispatch metrics with a slow subscriber threshold of 16 milliseconds, one frame at 60 fps
+     *
+     * @param enabled {@code true} to collect the metrics, {@code false} to stop and drop them
+     * @see #setMetricsEnabled(boolean, long, TimeUnit)
+     */
+    public final void setMetricsEnabled(boolean enabled) {
+        setMetricsEnabled(enabled, 16, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * enable the dispatch metrics: the post and deliver counters of every event class, the post-to-delivery latency
+     * histogram, and the count of the subscriber calls which ran longer than the threshold, by event class and
+     * by the class of the subscriber whose handler was called.
+     * the metrics are reset every time they are enabled, while they are disabled they cost one volatile read per post
+     *
+     * @param enabled       {@code true} to collect the metrics, {@code false} to stop and drop them
+     * @param slowThreshold the time a subscriber call may take before it counts as slow
+     * @param unit          the unit of the threshold
+     * @see #getMetrics()
+     */
+    public final void setMetricsEnabled(boolean enabled, long slowThreshold, TimeUnit unit) {
+        mMetrics = enabled ? new BusMetrics(unit.toNanos(slowThreshold)) : null;
+    }
+
+    /**
+     * @return a snapshot of the dispatch metrics, or {@code null} if the metrics are disabled
+     * @see #setMetricsEnabled(boolean)
+     */
+    public final EventBusMetrics getMetrics() {
+        BusMetrics metrics = mMetrics;
+        return metrics == null ? null : metrics.snapshot(mQueue);
+    }
+
+    /**
+     * @param priority the priority
+     * @return the count of the events of the priority waiting to be delivered in main thread
+     */
+    public final int getQueueDepth(Priority priority) {
+        return mQueue.depth(priority);
+    }
+
+    /**
+     * @return the count of the events of all the priorities waiting to be delivered in main thread
+     */
+    public final int getBacklog() {
+        return mQueue.depth();
+    }
+
+    /**
+     * limit the time main thread spends delivering the queued events in one go, the events left when the budget
+     * is used up are delivered at the next frame, by the frame callback of a {@link FrameDispatcher}, or by the
+     * next drain of another dispatcher, so an event storm can't hold back the frames.
+     * an event is never split, the budget is checked after each one. there is no budget by default.
+     * <p>the first drain of a backlog runs as soon as {@link MainThreadDispatcher#dispatch(Runnable)} runs it,
+     * it isn't aligned to a frame, only the drains deferred by a used up budget wait for
+     * {@link FrameDispatcher#dispatchNextFrame(Runnable)}. while a drain is deferred the posts don't schedule
+     * another one, the leftovers are delivered first at the next frame
+     *
+     * @param budget the budget of a drain, e.g. a quarter of a 16 milliseconds frame, or {@code 0} for no budget
+     * @param unit   the unit of the budget
+     * @see #getBacklog()
+     * @see EventBusMetrics#getDeferredDrainCount()
+     */
+    public final void setFrameBudget(long budget, TimeUnit unit) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget < 0");
+        }
+        mFrameBudgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * push the event to the subjects of its own type, super types and interfaces.
+     * an event posted by a subscriber in the same thread is queued and dispatched after the current event,
+     * so the posts inside the subscribers are delivered in order and never nest on the stack.
+     * a throwing subscriber doesn't stop the loop, otherwise the queued events would wait for the next post
+     * of the thread, the first failure is thrown after the loop like {@link MpscSubject}
+     *
+     * @param event the event
+     */
+    private void dispatch(Object event) {
+        DispatchLoop loop = mDispatchLoop.get();
+        if (!loop.enter(event)) {
+            return;
+        }
+        Throwable failure = null;
+        try {
+            deliver(event);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        while (loop.hasNext()) {
+            try {
+                deliver(loop.next());
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        loop.exit();
+        if (failure != null) {
+            throw Exceptions.propagate(failure);
+        }
+    }
+
+    private void deliver(Object event) {
+        if (event instanceof Sticky) {
+            deliverSticky(((Sticky) event).mEvent);
+            return;
+        }
+        if (mShutdown) {
+            RecyclableEvent.release(event);
+            return;
+        }
+        BusMetrics metrics = mMetrics;
+        try {
+            Class<?>[] types = EventTypes.of(event);
+            for (Class<?> type : types) {
+                Subject<Object, Object> subject = mSubjects.get(type);
+                if (subject == null) {
+                    continue;
+                }
+                if (metrics == null) {
+                    subject.onNext(event);
+                } else {
+                    // timed per subscribed type, so a slow call isn't blurred with the others of the event
+                    long start = System.nanoTime();
+                    try {
+                        subject.onNext(event);
+                    } finally {
+                        metrics.onSubscriberCall(event, System.nanoTime() - start);
+                    }
+                }
+            }
+            if (event instanceof Routable) {
+                long start = metrics == null ? 0 : System.nanoTime();
+                try {
+                    mRoutingIndex.dispatch((Routable) event, types);
+                } finally {
+                    if (metrics != null) {
+                        metrics.onSubscriberCall(event, System.nanoTime() - start);
+                    }
+                }
+            }
+        } finally {
+            if (metrics != null) {
+                metrics.onDeliver(event);
+            }
+            // the subscribers which hand the event over to other threads hold references of their own
+            RecyclableEvent.release(event);
+        }
+    }
+
+    /**
+     * cache the sticky event right before it is delivered, so a subscriber of {@link #ofTypeSticky(Class)}
+     * either receives it live or finds it in the cache
+     */
+    private void deliverSticky(Object event) {
+        if (mShutdown) {
+            return;
+        }
+        mStickyCache.deliver(event);
+        try {
+            deliver(event);
+        } finally {
+            mStickyCache.delivered(event);
+        }
+    }
+
+    /**
+     * get the subject of the event type, create it if absent
+     *
+     * @param eventType eventType
+     * @return the subject
+     */
+    private Subject<Object, Object> subject(Class<?> eventType) {
+        Subject<Object, Object> subject = mSubjects.get(eventType);
+        if (subject == null && mShutdown) {
+            subject = PublishSubject.create();
+            subject.onCompleted();
+        } else if (subject == null) {
+            subject = new MpscSubject<>(PublishSubject.create());
+            Subject<Object, Object> previous = mSubjects.putIfAbsent(eventType, subject);
+            if (previous != null) {
+                subject = previous;
+            }
+        }
+        return subject;
     }
 
     /**
@@ -108,7 +833,7 @@ public class RxEventBus {
      * @return the <tt>Observable</tt>
      */
     public Observable<Object> toObservable() {
-        return mSubject;
+        return subject(Object.class);
     }
 
     /**
@@ -119,7 +844,183 @@ public class RxEventBus {
      * @return {@link Observable}
      */
     public <T> Observable<T> ofType(Class<T> eventType) {
-        return mSubject.ofType(eventType);
+        return (Observable<T>) subject(eventType);
+    }
+
+    /**
+     * filter the event type and the routing key, e.g. the message events of one conversation.
+     * the events are looked up by type and key, so a post costs the same however many keys are subscribed,
+     * instead of running the filter of every subscriber
+     *
+     * @param eventType eventType, the events must implement {@link Routable}
+     * @param key       the routing key
+     * @param <T>       data model
+     * @return {@link Observable}
+     */
+    public <T extends Routable> Observable<T> ofType(Class<T> eventType, Object key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+        return mRoutingIndex.observe(eventType, key);
+    }
+
+    /**
+     * filter the event type like {@link #ofType(Class)}, but the sticky events which are instances of the type
+     * are delivered to a new subscriber at once in the subscribing thread, the existing subscribers don't receive them again.
+     * the new subscriber is subscribed to the live events first, so it receives every event once,
+     * even if the events are posted or delivered while it is subscribing
+     *
+     * @param eventType eventType
+     * @param <T>       data model
+     * @return {@link Observable}
+     * @see #postSticky(Object)
+     */
+    public <T> Observable<T> ofTypeSticky(final Class<T> eventType) {
+        return Observable.create(new Observable.OnSubscribe<T>() {
+            @Override
+            public void call(Subscriber<? super T> child) {
+                StickySubscriber<T> parent = new StickySubscriber<>(child);
+                ofType(eventType).unsafeSubscribe(parent);
+                parent.replay(mStickyCache, eventType);
+            }
+        });
+    }
+
+    /**
+     * filter the event type like {@link #ofTypeSticky(Class)}, and call the subscriber in the thread of the thread mode
+     *
+     * @param eventType  eventType
+     * @param threadMode the thread the subscriber is called in
+     * @param <T>        data model
+     * @return {@link Observable}
+     * @see ThreadMode
+     */
+    public <T> Observable<T> ofTypeSticky(Class<T> eventType, ThreadMode threadMode) {
+        if (threadMode == ThreadMode.POSTING) {
+            return ofTypeSticky(eventType);
+        }
+        return ofTypeSticky(eventType).lift(new ThreadModeOperator<T>(this, threadMode));
+    }
+
+    /**
+     * filter the event type and deliver the events as lists, a list is delivered when it has the max count of events,
+     * or when its first event has waited for the max delay. the full lists are delivered in the thread which delivers
+     * the last event, usually main thread, and the delayed lists are delivered in main thread.
+     * it schedules one timer per list, not per event, so bulk subscribers can do their work once for many events
+     *
+     * @param eventType eventType
+     * @param maxCount  the max count of the events in a list
+     * @param maxDelay  the max time the first event of a list waits
+     * @param unit      the unit of the delay
+     * @param <T>       data model
+     * @return the <tt>Observable</tt> of the lists, which are never empty
+     */
+    public <T> Observable<List<T>> ofTypeBuffered(Class<T> eventType, int maxCount, long maxDelay, TimeUnit unit) {
+        if (maxCount < 1 || maxDelay <= 0) {
+            throw new IllegalArgumentException("maxCount < 1 || maxDelay <= 0");
+        }
+        return ofType(eventType).lift(new BufferOperator<T>(this, maxCount, unit.toNanos(maxDelay)));
+    }
+
+    /**
+     * subscribe a handler of the event type which is called in parallel by the keys of the events, e.g. the device
+     * of a device event. the events are spread over one lane per cpu by the hash of the key, the events of a key are
+     * delivered in their order, and the events of different keys may be delivered at the same time in the background
+     * threads, so the handler must be thread safe
+     *
+     * @param eventType   eventType
+     * @param keySelector the key of an event, which must not change
+     * @param onNext      the event handler
+     * @param <T>         data model
+     * @return the subscription, the events still queued in the lanes are dropped once it is unsubscribed
+     * @see #partition(Class, Func1, int, Action1)
+     */
+    public <T> Subscription partition(Class<T> eventType, Func1<? super T, ?> keySelector, Action1<? super T> onNext) {
+        return partition(eventType, keySelector, Runtime.getRuntime().availableProcessors(), onNext);
+    }
+
+    /**
+     * subscribe a handler of the event type which is called in parallel by the keys of the events, the events of
+     * a key are delivered in their order, the handler must be thread safe.
+     * it returns a subscription rather than an <tt>Observable</tt>, because the handler is called from many threads
+     * at once, which the operators of an <tt>Observable</tt> don't allow
+     *
+     * @param eventType   eventType
+     * @param keySelector the key of an event, which must not change
+     * @param lanes       the count of the serial lanes, the parallelism is at most the count of the cpus
+     * @param onNext      the event handler
+     * @param <T>         data model
+     * @return the subscription
+     * @see #partition(Class, Func1, Action1)
+     */
+    public <T> Subscription partition(Class<T> eventType, Func1<? super T, ?> keySelector, int lanes,
+                                      Action1<? super T> onNext) {
+        if (keySelector == null || onNext == null) {
+            throw new NullPointerException("keySelector == null || onNext == null");
+        }
+        if (lanes < 1) {
+            throw new IllegalArgumentException("lanes < 1");
+        }
+        return ofType(eventType).subscribe(new PartitionSubscriber<>(keySelector, lanes, onNext));
+    }
+
+    /**
+     * filter the event type, and call the subscriber in the thread of the thread mode
+     *
+     * @param eventType  eventType
+     * @param threadMode the thread the subscriber is called in
+     * @param <T>        data model
+     * @return {@link Observable}
+     * @see ThreadMode
+     */
+    public <T> Observable<T> ofType(Class<T> eventType, ThreadMode threadMode) {
+        if (threadMode == ThreadMode.POSTING) {
+            return ofType(eventType);
+        }
+        return ofType(eventType).lift(new ThreadModeOperator<T>(this, threadMode));
+    }
+
+    /**
+     * add a generated subscriber index, it is used by {@link #register(Object)} for finding the
+     * {@link Subscribe} methods of a subscriber
+     *
+     * @param index the index generated by the {@code eventbus-compiler} annotation processor
+     */
+    public final void addIndex(SubscriberIndex index) {
+        mIndexes.addIfAbsent(index);
+    }
+
+    /**
+     * subscribe all the {@link Subscribe} methods of the subscriber, it is the same as calling
+     * {@link #ofType(Class)} and {@link #subscribe(Object, Subscription)} for every method.
+     * don't forget to call {@link #unsubscribe(Object)} once you don't want to receive any events
+     *
+     * @param subscriber subscriber
+     * @throws IllegalArgumentException if the subscriber class and its super classes are not in any index
+     * @see #addIndex(SubscriberIndex)
+     */
+    public final void register(Object subscriber) {
+        binder(subscriber.getClass()).bind(this, subscriber);
+    }
+
+    private SubscriberBinder<Object> binder(Class<?> subscriberClass) {
+        SubscriberBinder<Object> binder = mBinders.get(subscriberClass);
+        if (binder == null) {
+            // a subclass without its own handlers uses the binder of its super class
+            for (Class<?> clazz = subscriberClass; clazz != null && binder == null; clazz = clazz.getSuperclass()) {
+                for (SubscriberIndex index : mIndexes) {
+                    binder = (SubscriberBinder<Object>) index.getBinder(clazz);
+                    if (binder != null) {
+                        break;
+                    }
+                }
+            }
+            if (binder == null) {
+                throw new IllegalArgumentException(subscriberClass + " has no @Subscribe methods in the subscriber indexes");
+            }
+            mBinders.putIfAbsent(subscriberClass, binder);
+        }
+        return binder;
     }
 
     /**
@@ -132,21 +1033,56 @@ public class RxEventBus {
      * @see #unsubscribe(Object)
      */
     public final void subscribe(Object subscriber, Subscription subscription) {
-        mReentrantLock.lock();
-        try {
-            CompositeSubscription list = mMap.get(subscriber);
-            if (list == null) {
-                list = Subscriptions.from(subscription);
-                mMap.put(subscriber, list);
-                Log.i(TAG, "subscribe: " + subscriber.getClass());
-            } else {
-                list.add(subscription);
-            }
-        } finally {
-            mReentrantLock.unlock();
+        if (mRegistry.add(subscriber, subscription)) {
+            EventBusLog.i(TAG, "subscribe: " + subscriber.getClass());
         }
     }
 
+    /**
+     * subscribe the observable with an event handler which is called with the subscriber, and keep the subscription
+     * for the subscriber like {@link #subscribe(Object, Subscription)}. the handler gets the subscriber as an argument,
+     * so it needn't reference the subscriber itself, e.g. a static nested class.
+     * in weak reference mode the subscription only keeps the subscriber by weak reference,
+     * and the events delivered after it is garbage collected are dropped
+     *
+     * @param subscriber subscriber
+     * @param observable the events, e.g. {@link #ofType(Class)}
+     * @param onNext     the event handler
+     * @param <S>        the subscriber class
+     * @param <T>        data model
+     * @return the subscription
+     * @see #setWeakReferenceEnabled(boolean)
+     */
+    public final <S, T> Subscription subscribe(S subscriber, Observable<T> observable, Action2<? super S, ? super T> onNext) {
+        Subscription subscription = observable.subscribe(
+                new SubscriberAction<S, T>(this, subscriber, mRegistry.isWeakReferenceEnabled(), onNext));
+        subscribe(subscriber, subscription);
+        return subscription;
+    }
+
+    /**
+     * keep the subscribers added after this call by weak reference, so a subscriber which forgot to call
+     * {@link #unsubscribe(Object)} can still be garbage collected, its subscriptions are unsubscribed automatically
+     * by a background thread soon after it is collected. in this mode the subscribers are compared by identity.
+     * <p>Note: the subscriber is only collectable if the subscriptions don't reference it strongly,
+     * subscribe the handlers by {@link #subscribe(Object, Observable, Action2)} or {@link #register(Object)},
+     * an anonymous {@code Action1} created inside the subscriber keeps it alive</p>
+     *
+     * @param enabled {@code true} to keep the subscribers by weak reference, it is {@code false} by default
+     * @see #getReclaimedSubscriberCount()
+     */
+    public final void setWeakReferenceEnabled(boolean enabled) {
+        mRegistry.setWeakReferenceEnabled(enabled);
+    }
+
+    /**
+     * @return the count of the subscribers whose subscriptions are unsubscribed automatically after they were garbage collected
+     * @see #setWeakReferenceEnabled(boolean)
+     */
+    public final long getReclaimedSubscriberCount() {
+        return mRegistry.getReclaimedCount();
+    }
+
     /**
      * unsubscribe all events, avoiding memory leak
      *
@@ -154,16 +1090,8 @@ public class RxEventBus {
      * @see #subscribe(Object, Subscription)
      */
     public final void unsubscribe(Object subscriber) {
-        mReentrantLock.lock();
-        try {
-            CompositeSubscription list = mMap.get(subscriber);
-            if (list != null) {
-                list.unsubscribe();
-                mMap.remove(subscriber);
-                Log.i(TAG, "unsubscribe: " + subscriber.getClass());
-            }
-        } finally {
-            mReentrantLock.unlock();
+        if (mRegistry.remove(subscriber)) {
+            EventBusLog.i(TAG, "unsubscribe: " + subscriber.getClass());
         }
     }
 
@@ -174,12 +1102,159 @@ public class RxEventBus {
      * @return {@code true} if this Subscriber has unsubscribed from its subscriptions, {@code false} otherwise
      */
     public final boolean isUnsubscribed(Object subscriber) {
-        mReentrantLock.lock();
-        try {
-            CompositeSubscription list = mMap.get(subscriber);
-            return list == null || list.isUnsubscribed();
-        } finally {
-            mReentrantLock.unlock();
+        return mRegistry.isUnsubscribed(subscriber);
+    }
+
+    /**
+     * deliver the latest event of a conflation key
+     */
+    private final class ConflatedDelivery extends Delivery {
+
+        private final Object mKey;
+        private final long mPostNanos;
+
+        ConflatedDelivery(Object key, boolean timed) {
+            mKey = key;
+            mPostNanos = timed ? System.nanoTime() : -1;
+        }
+
+        @Override
+        public void run() {
+            Object event = mConflated.remove(mKey);
+            if (event != null) {
+                BusMetrics metrics = mMetrics;
+                if (metrics != null && mPostNanos != -1) {
+                    metrics.onLatency(System.nanoTime() - mPostNanos);
+                }
+                dispatch(event);
+            }
+        }
+    }
+
+    /**
+     * deliver an event posted while the metrics are enabled, and record its post-to-delivery latency
+     */
+    private final class TimedDelivery extends Delivery {
+
+        private final Object mEvent;
+        private final long mPostNanos;
+
+        TimedDelivery(Object event) {
+            mEvent = event;
+            mPostNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            BusMetrics metrics = mMetrics;
+            if (metrics != null) {
+                metrics.onLatency(System.nanoTime() - mPostNanos);
+            }
+            dispatch(mEvent);
+        }
+    }
+
+    /**
+     * a sticky event on its way to {@link #deliver(Object)}, which caches it
+     */
+    private static final class Sticky {
+
+        final Object mEvent;
+
+        Sticky(Object event) {
+            mEvent = event;
+        }
+    }
+
+    /**
+     * a delayed or periodic post, it is the timer wheel node and the cancellation handle at once
+     */
+    private final class DelayedPost extends TimerWheel.Timeout {
+
+        private final Object mEvent;
+
+        DelayedPost(Object event) {
+            mEvent = event;
+        }
+
+        @Override
+        void run() {
+            if (mShutdown) {
+                unsubscribe();
+                RecyclableEvent.release(mEvent);
+            } else {
+                post(mEvent);
+            }
+        }
+
+        @Override
+        void onCancel() {
+            RecyclableEvent.release(mEvent);
+        }
+    }
+
+    /**
+     * <h1>Builder</h1>
+     * build a scoped event bus, which may forward the selected event types to a parent bus
+     */
+    public static final class Builder {
+
+        private MainThreadDispatcher mDispatcher;
+        private RxEventBus mParent;
+        private final List<Class<?>> mForwardTypes = new ArrayList<>();
+        private boolean mWeakReferenceEnabled;
+
+        /**
+         * @param dispatcher the delivery thread, it is the dispatcher of the parent bus or android main thread by default
+         * @return this builder
+         */
+        public Builder dispatcher(MainThreadDispatcher dispatcher) {
+            mDispatcher = dispatcher;
+            return this;
+        }
+
+        /**
+         * @param parent the parent bus
+         * @return this builder
+         * @see #forward(Class[])
+         */
+        public Builder parent(RxEventBus parent) {
+            mParent = parent;
+            return this;
+        }
+
+        /**
+         * forward the events which are instances of the types to the parent bus too, in the same way they are posted
+         *
+         * @param eventTypes the event types
+         * @return this builder
+         */
+        public Builder forward(Class<?>... eventTypes) {
+            Collections.addAll(mForwardTypes, eventTypes);
+            return this;
+        }
+
+        /**
+         * @param enabled {@code true} to keep the subscribers by weak reference
+         * @return this builder
+         * @see RxEventBus#setWeakReferenceEnabled(boolean)
+         */
+        public Builder weakReferences(boolean enabled) {
+            mWeakReferenceEnabled = enabled;
+            return this;
+        }
+
+        public RxEventBus build() {
+            if (!mForwardTypes.isEmpty() && mParent == null) {
+                throw new IllegalStateException("forward types without a parent bus");
+            }
+            MainThreadDispatcher dispatcher = mDispatcher;
+            if (dispatcher == null) {
+                dispatcher = mParent != null ? mParent.mDispatcher : new LooperDispatcher(Looper.getMainLooper());
+            }
+            RxEventBus bus = new RxEventBus(dispatcher, mParent, mForwardTypes.toArray(new Class<?>[mForwardTypes.size()]));
+            bus.setWeakReferenceEnabled(mWeakReferenceEnabled);
+            return bus;
         }
     }
 }
@@ -0,0 +1,54 @@
+package com.yxkang.rxandroid;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>SerialLane</h1>
+ * run the tasks one at a time in their order on a shared executor, without a thread of its own.
+ * at most one drain of a lane is running or scheduled, so the lanes of a pool run in parallel with each other
+ */
+final class SerialLane implements Executor, Runnable {
+
+    private final Executor mExecutor;
+    private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+    /**
+     * the count of the tasks offered and not yet accounted by a drain, the drain is scheduled when it leaves 0
+     */
+    private final AtomicInteger mWip = new AtomicInteger();
+
+    SerialLane(Executor executor) {
+        mExecutor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        mTasks.offer(task);
+        if (mWip.getAndIncrement() == 0) {
+            mExecutor.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        int missed = 1;
+        while (true) {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // keep the lane running in a new drain, and let the executor report the failure
+                    mExecutor.execute(this);
+                    throw e;
+                }
+            }
+            missed = mWip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+}
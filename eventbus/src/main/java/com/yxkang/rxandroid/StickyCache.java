@@ -0,0 +1,119 @@
+package com.yxkang.rxandroid;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>StickyCache</h1>
+ * keep the latest sticky event of every event class, using in {@link RxEventBus}.
+ * the cache is bounded, the least recently delivered class is evicted first once the max size is reached.
+ * an event is cached by the bus right before it is delivered, and it is marked as delivering until all
+ * the subscribers have received it, see {@link StickySubscriber}
+ */
+final class StickyCache {
+
+    static final int DEFAULT_MAX_SIZE = 64;
+
+    /**
+     * in insertion order, an event class is moved to the end when it is delivered again
+     */
+    private final LinkedHashMap<Class<?>, Object> mEvents = new LinkedHashMap<>();
+    /**
+     * the events being delivered, an event posted twice at the same time is in the list twice
+     */
+    private final List<Object> mDelivering = new ArrayList<>(1);
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * cache the event and mark it as delivering, it is called right before the event is delivered
+     */
+    synchronized void deliver(Object event) {
+        Class<?> eventClass = event.getClass();
+        mEvents.remove(eventClass);
+        mEvents.put(eventClass, event);
+        mDelivering.add(event);
+        trim();
+    }
+
+    /**
+     * unmark the event, it is called after all the subscribers have received it
+     */
+    synchronized void delivered(Object event) {
+        for (int i = 0; i < mDelivering.size(); i++) {
+            if (mDelivering.get(i) == event) {
+                mDelivering.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the subscribers which are subscribed now may not have received the event yet
+     */
+    synchronized boolean isDelivering(Object event) {
+        for (int i = 0; i < mDelivering.size(); i++) {
+            if (mDelivering.get(i) == event) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param eventType eventType
+     * @param <T>       data model
+     * @return the cached events which are instances of the type, the least recently delivered first
+     */
+    synchronized <T> List<T> get(Class<T> eventType) {
+        List<T> events = new ArrayList<>(1);
+        for (Object event : mEvents.values()) {
+            if (eventType.isInstance(event)) {
+                events.add(eventType.cast(event));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * @param eventType eventType
+     * @return {@code true} if any event is removed
+     */
+    synchronized boolean remove(Class<?> eventType) {
+        boolean removed = false;
+        Iterator<Object> iterator = mEvents.values().iterator();
+        while (iterator.hasNext()) {
+            if (eventType.isInstance(iterator.next())) {
+                iterator.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    synchronized void clear() {
+        mEvents.clear();
+    }
+
+    synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0: " + maxSize);
+        }
+        mMaxSize = maxSize;
+        trim();
+    }
+
+    synchronized int size() {
+        return mEvents.size();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Class<?>, Object>> iterator = mEvents.entrySet().iterator();
+        while (mEvents.size() > mMaxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
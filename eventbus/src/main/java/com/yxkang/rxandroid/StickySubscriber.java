@@ -0,0 +1,116 @@
+package com.yxkang.rxandroid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.Subscriber;
+
+/**
+ * <h1>StickySubscriber</h1>
+ * the subscriber of {@link RxEventBus#ofTypeSticky(Class)}, it is subscribed to the live events before the sticky
+ * events are replayed, so no event posted meanwhile is lost, and it delivers every event once:
+ * a sticky event which is delivered live before the replay is not replayed, and a replayed event which is still
+ * being delivered by the bus is dropped when it arrives live.
+ * the live events are delivered under the lock of this subscriber until the replay is done, and without it afterwards
+ *
+ * @param <T> data model
+ */
+final class StickySubscriber<T> extends Subscriber<T> {
+
+    private final Subscriber<? super T> mChild;
+    /**
+     * the live events delivered before the replay, {@code null} once the replay is done, guarded by this
+     */
+    private List<Object> mLive = new ArrayList<>(1);
+    /**
+     * the replayed events which may still arrive live, guarded by this
+     */
+    private volatile List<Object> mReplayed;
+    private volatile boolean mReplayDone;
+
+    StickySubscriber(Subscriber<? super T> child) {
+        super(child);
+        mChild = child;
+    }
+
+    /**
+     * deliver the sticky events which are not delivered live already, it is called once after subscribing
+     *
+     * @param cache     the sticky events
+     * @param eventType eventType
+     */
+    void replay(StickyCache cache, Class<T> eventType) {
+        synchronized (this) {
+            List<Object> replayed = null;
+            try {
+                for (T event : cache.get(eventType)) {
+                    if (isUnsubscribed()) {
+                        break;
+                    }
+                    if (removeIdentical(mLive, event)) {
+                        continue;
+                    }
+                    if (cache.isDelivering(event)) {
+                        if (replayed == null) {
+                            replayed = new ArrayList<>(1);
+                        }
+                        replayed.add(event);
+                    }
+                    mChild.onNext(event);
+                }
+            } finally {
+                mLive = null;
+                mReplayed = replayed;
+                mReplayDone = true;
+            }
+        }
+    }
+
+    @Override
+    public void onNext(T t) {
+        if (!mReplayDone) {
+            synchronized (this) {
+                if (!mReplayDone) {
+                    mLive.add(t);
+                    mChild.onNext(t);
+                    return;
+                }
+            }
+        }
+        if (mReplayed != null && isReplayed(t)) {
+            return;
+        }
+        mChild.onNext(t);
+    }
+
+    @Override
+    public void onCompleted() {
+        mChild.onCompleted();
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        mChild.onError(e);
+    }
+
+    private synchronized boolean isReplayed(Object event) {
+        List<Object> replayed = mReplayed;
+        if (replayed == null || !removeIdentical(replayed, event)) {
+            return false;
+        }
+        if (replayed.isEmpty()) {
+            mReplayed = null;
+        }
+        return true;
+    }
+
+    private static boolean removeIdentical(List<Object> events, Object event) {
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i) == event) {
+                events.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
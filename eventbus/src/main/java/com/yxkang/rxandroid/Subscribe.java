@@ -0,0 +1,24 @@
+package com.yxkang.rxandroid;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <h1>Subscribe</h1>
+ * mark a method as an event handler, the only parameter of the method is the event type.
+ * the method must not be private or static, the {@code eventbus-compiler} annotation processor generates
+ * a {@link SubscriberBinder} for the class, then the subscriber is registered by {@link RxEventBus#register(Object)}
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Subscribe {
+
+    /**
+     * @return the thread the method is called in
+     */
+    ThreadMode threadMode() default ThreadMode.POSTING;
+}
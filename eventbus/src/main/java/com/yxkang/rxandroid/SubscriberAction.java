@@ -0,0 +1,50 @@
+package com.yxkang.rxandroid;
+
+import java.lang.ref.WeakReference;
+
+import rx.functions.Action1;
+import rx.functions.Action2;
+
+/**
+ * <h1>SubscriberAction</h1>
+ * call an event handler with its subscriber, using in {@link RxEventBus#subscribe(Object, rx.Observable, Action2)}.
+ * in weak reference mode the subscriber is only reached through a {@link WeakReference}, so the subscription
+ * doesn't keep it alive, and the events delivered after it is garbage collected are dropped.
+ * while the metrics are enabled every call is timed by the class of the subscriber
+ *
+ * @param <S> the subscriber class
+ * @param <T> data model
+ */
+final class SubscriberAction<S, T> implements Action1<T> {
+
+    private final RxEventBus mBus;
+    private final S mSubscriber;
+    private final WeakReference<S> mWeakSubscriber;
+    private final Action2<? super S, ? super T> mAction;
+
+    SubscriberAction(RxEventBus bus, S subscriber, boolean weak, Action2<? super S, ? super T> action) {
+        mBus = bus;
+        mSubscriber = weak ? null : subscriber;
+        mWeakSubscriber = weak ? new WeakReference<>(subscriber) : null;
+        mAction = action;
+    }
+
+    @Override
+    public void call(T t) {
+        S subscriber = mWeakSubscriber != null ? mWeakSubscriber.get() : mSubscriber;
+        if (subscriber == null) {
+            return;
+        }
+        BusMetrics metrics = mBus.metrics();
+        if (metrics == null) {
+            mAction.call(subscriber, t);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            mAction.call(subscriber, t);
+        } finally {
+            metrics.onHandler(subscriber.getClass(), System.nanoTime() - start);
+        }
+    }
+}
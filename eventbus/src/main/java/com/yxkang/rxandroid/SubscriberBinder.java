@@ -0,0 +1,19 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>SubscriberBinder</h1>
+ * subscribe all the {@link Subscribe} methods of a subscriber, the implementations are generated by
+ * the {@code eventbus-compiler} annotation processor
+ *
+ * @param <T> the subscriber class
+ */
+public interface SubscriberBinder<T> {
+
+    /**
+     * subscribe the event handlers of the subscriber, and keep the subscriptions by {@link RxEventBus#subscribe}
+     *
+     * @param bus        the event bus
+     * @param subscriber the subscriber
+     */
+    void bind(RxEventBus bus, T subscriber);
+}
@@ -0,0 +1,17 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>SubscriberIndex</h1>
+ * find the {@link SubscriberBinder} of a subscriber class without reflection, the implementation is generated by
+ * the {@code eventbus-compiler} annotation processor, named by the {@code rxEventBusIndex} processor option
+ *
+ * @see RxEventBus#addIndex(SubscriberIndex)
+ */
+public interface SubscriberIndex {
+
+    /**
+     * @param subscriberClass the subscriber class
+     * @return the binder of the class, or {@code null} if the class has no {@link Subscribe} methods
+     */
+    SubscriberBinder<?> getBinder(Class<?> subscriberClass);
+}
@@ -0,0 +1,214 @@
+package com.yxkang.rxandroid;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Subscription;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * <h1>SubscriberRegistry</h1>
+ * keep the subscriptions of every subscriber, using in {@link RxEventBus}.
+ * the registry is lock-free, subscribe, unsubscribe and query never block each other.
+ * <p>In weak reference mode the subscribers are kept by {@link WeakReference} and compared by identity,
+ * the subscriptions of a garbage collected subscriber are unsubscribed by a daemon thread shared by all the registries,
+ * so they are cleaned up even if no event is posted any more</p>
+ */
+final class SubscriberRegistry {
+
+    private static final String TAG = "SubscriberRegistry";
+    /**
+     * the garbage collected weak keys of all the registries
+     */
+    private static final ReferenceQueue<Object> sReferenceQueue = new ReferenceQueue<>();
+    private static Thread sReaper;
+
+    private final ConcurrentMap<Object, CompositeSubscription> mMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WeakKey, CompositeSubscription> mWeakMap = new ConcurrentHashMap<>();
+    private final AtomicLong mReclaimedCount = new AtomicLong();
+    private volatile boolean mWeakReferenceEnabled;
+
+    /**
+     * the subscribers added after this call are kept by strong or weak reference,
+     * the subscribers added before are kept as they were
+     *
+     * @param enabled {@code true} to keep the subscribers by weak reference
+     */
+    void setWeakReferenceEnabled(boolean enabled) {
+        mWeakReferenceEnabled = enabled;
+    }
+
+    boolean isWeakReferenceEnabled() {
+        return mWeakReferenceEnabled;
+    }
+
+    /**
+     * @return the count of the subscribers whose subscriptions are unsubscribed after they were garbage collected
+     */
+    long getReclaimedCount() {
+        return mReclaimedCount.get();
+    }
+
+    /**
+     * add a subscription for the subscriber
+     *
+     * @param subscriber   subscriber
+     * @param subscription subscription
+     * @return {@code true} if it is the first subscription of the subscriber
+     */
+    boolean add(Object subscriber, Subscription subscription) {
+        CompositeSubscription list = mMap.get(subscriber);
+        if (list == null) {
+            list = mWeakMap.get(new WeakKey(subscriber));
+        }
+        if (list == null) {
+            CompositeSubscription created = new CompositeSubscription(subscription);
+            if (mWeakReferenceEnabled) {
+                startReaper();
+                list = mWeakMap.putIfAbsent(new WeakKey(subscriber, this), created);
+            } else {
+                list = mMap.putIfAbsent(subscriber, created);
+            }
+            if (list == null) {
+                return true;
+            }
+        }
+        // the subscription is unsubscribed at once if the list is removed concurrently
+        list.add(subscription);
+        return false;
+    }
+
+    /**
+     * remove and unsubscribe all the subscriptions of the subscriber
+     *
+     * @param subscriber subscriber
+     * @return {@code true} if the subscriber was registered
+     */
+    boolean remove(Object subscriber) {
+        CompositeSubscription list = mMap.remove(subscriber);
+        if (list == null) {
+            list = mWeakMap.remove(new WeakKey(subscriber));
+        }
+        if (list != null) {
+            list.unsubscribe();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param subscriber subscriber
+     * @return {@code true} if the subscriber has no subscriptions or all of them are unsubscribed
+     */
+    boolean isUnsubscribed(Object subscriber) {
+        CompositeSubscription list = mMap.get(subscriber);
+        if (list == null) {
+            list = mWeakMap.get(new WeakKey(subscriber));
+        }
+        return list == null || list.isUnsubscribed();
+    }
+
+    /**
+     * remove and unsubscribe the subscriptions of all the subscribers
+     */
+    void clear() {
+        for (Object subscriber : mMap.keySet()) {
+            CompositeSubscription list = mMap.remove(subscriber);
+            if (list != null) {
+                list.unsubscribe();
+            }
+        }
+        for (WeakKey key : mWeakMap.keySet()) {
+            CompositeSubscription list = mWeakMap.remove(key);
+            if (list != null) {
+                list.unsubscribe();
+            }
+        }
+    }
+
+    /**
+     * unsubscribe the subscriptions of a garbage collected subscriber
+     */
+    private void expunge(WeakKey key) {
+        CompositeSubscription list = mWeakMap.remove(key);
+        if (list != null) {
+            list.unsubscribe();
+            mReclaimedCount.incrementAndGet();
+        }
+    }
+
+    private static synchronized void startReaper() {
+        if (sReaper != null) {
+            return;
+        }
+        sReaper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    Reference<?> reference;
+                    try {
+                        reference = sReferenceQueue.remove();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    WeakKey key = (WeakKey) reference;
+                    try {
+                        key.mRegistry.expunge(key);
+                    } catch (Throwable e) {
+                        EventBusLog.w(TAG, "unsubscribe a garbage collected subscriber failed", e);
+                    }
+                }
+            }
+        }, "RxEventBus-reaper");
+        sReaper.setDaemon(true);
+        sReaper.start();
+    }
+
+    /**
+     * a weak reference to a subscriber, compared by the identity of the subscriber
+     */
+    private static final class WeakKey extends WeakReference<Object> {
+
+        private final int mHashCode;
+        /**
+         * the registry which keeps the key, {@code null} for a key only for looking up
+         */
+        private final SubscriberRegistry mRegistry;
+
+        /**
+         * create a key only for looking up
+         */
+        WeakKey(Object subscriber) {
+            super(subscriber);
+            mHashCode = System.identityHashCode(subscriber);
+            mRegistry = null;
+        }
+
+        WeakKey(Object subscriber, SubscriberRegistry registry) {
+            super(subscriber, sReferenceQueue);
+            mHashCode = System.identityHashCode(subscriber);
+            mRegistry = registry;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WeakKey)) {
+                return false;
+            }
+            Object subscriber = get();
+            return subscriber != null && subscriber == ((WeakKey) o).get();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.yxkang.rxandroid;
+
+/**
+ * <h1>ThreadMode</h1>
+ * the thread an event handler is called in, see {@link RxEventBus#ofType(Class, ThreadMode)}
+ */
+public enum ThreadMode {
+
+    /**
+     * call the handler in the thread the bus delivers the event, that is the main thread for
+     * {@link RxEventBus#post(Object)} and the posting thread for {@link RxEventBus#post(Object, boolean)}.
+     * it is the default mode and has no overhead
+     */
+    POSTING,
+
+    /**
+     * call the handler in the main thread, at once if the event is delivered in the main thread,
+     * otherwise it is queued to the main thread
+     */
+    MAIN,
+
+    /**
+     * always queue the event to the main thread, the handler is never called nested inside the posting call
+     */
+    MAIN_ORDERED,
+
+    /**
+     * queue the event to a single serial worker thread, so the handlers are called one by one in the order
+     * of the events, whichever thread posted them
+     */
+    BACKGROUND,
+
+    /**
+     * always call the handler in a bounded thread pool, the events of a subscription are handled one at a time
+     * in their order, and the handlers of different subscriptions may be called concurrently
+     */
+    ASYNC
+}
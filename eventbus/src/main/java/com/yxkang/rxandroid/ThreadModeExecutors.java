@@ -0,0 +1,71 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>ThreadModeExecutors</h1>
+ * the executors of {@link ThreadMode#BACKGROUND} and {@link ThreadMode#ASYNC}, shared by all the buses.
+ * they are created on first use, the idle threads are terminated after a while
+ */
+final class ThreadModeExecutors {
+
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    private ThreadModeExecutors() {
+    }
+
+    /**
+     * @return the single serial worker of {@link ThreadMode#BACKGROUND}
+     */
+    static Executor background() {
+        return BackgroundHolder.EXECUTOR;
+    }
+
+    /**
+     * @return the bounded pool of {@link ThreadMode#ASYNC}, one thread per cpu and at least 2, so a long handler
+     * doesn't hold back the other subscriptions on a single core device
+     */
+    static Executor async() {
+        return AsyncHolder.EXECUTOR;
+    }
+
+    static ThreadPoolExecutor newExecutor(int threads, String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class BackgroundHolder {
+
+        static final Executor EXECUTOR = newExecutor(1, "RxEventBus-background");
+    }
+
+    private static final class AsyncHolder {
+
+        static final Executor EXECUTOR = newExecutor(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                "RxEventBus-async");
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+        private final String mName;
+
+        NamedThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, mName + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.yxkang.rxandroid;
+
+import java.util.concurrent.Executor;
+
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * <h1>ThreadModeOperator</h1>
+ * route every event of a subscription to the thread of its {@link ThreadMode}.
+ * the child is called by one thread at a time in the order of the events, like any Rx subscriber:
+ * {@link ThreadMode#BACKGROUND} always hands the events over to its single worker, and every
+ * {@link ThreadMode#ASYNC} subscription has a {@link SerialLane} of its own on the pool
+ *
+ * @param <T> data model
+ */
+final class ThreadModeOperator<T> implements Observable.Operator<T, T> {
+
+    private final RxEventBus mBus;
+    private final ThreadMode mThreadMode;
+
+    ThreadModeOperator(RxEventBus bus, ThreadMode threadMode) {
+        mBus = bus;
+        mThreadMode = threadMode;
+    }
+
+    @Override
+    public Subscriber<? super T> call(final Subscriber<? super T> child) {
+        final Executor lane = mThreadMode == ThreadMode.ASYNC ? new SerialLane(ThreadModeExecutors.async()) : null;
+        return new Subscriber<T>(child) {
+            @Override
+            public void onCompleted() {
+                child.onCompleted();
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                child.onError(e);
+            }
+
+            @Override
+            public void onNext(T t) {
+                switch (mThreadMode) {
+                    case MAIN:
+                        if (mBus.isMainThread()) {
+                            child.onNext(t);
+                        } else {
+                            mBus.enqueue(new Next<>(child, t), Priority.NORMAL);
+                        }
+                        break;
+                    case MAIN_ORDERED:
+                        mBus.enqueue(new Next<>(child, t), Priority.NORMAL);
+                        break;
+                    case BACKGROUND:
+                        ThreadModeExecutors.background().execute(new Next<>(child, t));
+                        break;
+                    case ASYNC:
+                        lane.execute(new Next<>(child, t));
+                        break;
+                    default:
+                        child.onNext(t);
+                        break;
+                }
+            }
+        };
+    }
+
+    private static final class Next<T> extends Delivery {
+
+        private final Subscriber<? super T> mChild;
+        private final T mValue;
+
+        Next(Subscriber<? super T> child, T value) {
+            mChild = child;
+            mValue = value;
+            RecyclableEvent.retain(value);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!mChild.isUnsubscribed()) {
+                    mChild.onNext(mValue);
+                }
+            } finally {
+                RecyclableEvent.release(mValue);
+            }
+        }
+    }
+}
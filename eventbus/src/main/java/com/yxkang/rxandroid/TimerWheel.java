@@ -0,0 +1,257 @@
+package com.yxkang.rxandroid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+
+/**
+ * <h1>TimerWheel</h1>
+ * a hashed timer wheel: the timeouts are linked into the bucket of their deadline tick, so scheduling and cancelling
+ * are O(1), and one thread expires a bucket per tick. the thread waits without ticking while nothing is scheduled.
+ * a periodic timeout is linked again by its deadline, so it does not drift and allocates nothing per period.
+ * the timeouts run in the timer thread, they must only hand their work over to other threads,
+ * a throwing timeout is logged and doesn't stop the others.
+ * the delays and the periods are capped at {@link #MAX_DELAY_NANOS}, so the deadline arithmetic never overflows
+ */
+final class TimerWheel implements Runnable {
+
+    private static final String TAG = "TimerWheel";
+    private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    /**
+     * about 73 years, e.g. a delay of {@link Long#MAX_VALUE} would wrap around and run at the next tick
+     */
+    static final long MAX_DELAY_NANOS = Long.MAX_VALUE / 4;
+
+    private final long mTickNanos;
+    private final Timeout[] mBuckets;
+    private final int mMask;
+    private final int mShift;
+    private final String mName;
+    private Thread mThread;
+    /**
+     * the next tick to expire and its time
+     */
+    private long mTick;
+    private long mTickTime;
+    private int mCount;
+
+    static TimerWheel getDefault() {
+        return DefaultHolder.WHEEL;
+    }
+
+    /**
+     * @param tickNanos the precision of the deadlines
+     * @param wheelSize the count of the buckets, a power of 2
+     * @param name      the name of the timer thread
+     */
+    TimerWheel(long tickNanos, int wheelSize, String name) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize is not a power of 2");
+        }
+        mTickNanos = tickNanos;
+        mBuckets = new Timeout[wheelSize];
+        mMask = wheelSize - 1;
+        mShift = Integer.numberOfTrailingZeros(wheelSize);
+        mName = name;
+    }
+
+    /**
+     * @param timeout     a timeout which is not scheduled yet
+     * @param delayNanos  the delay of the first run, capped at {@link #MAX_DELAY_NANOS}
+     * @param periodNanos the period of the later runs, or {@code 0} to run once, capped at {@link #MAX_DELAY_NANOS}
+     */
+    synchronized void schedule(Timeout timeout, long delayNanos, long periodNanos) {
+        if (timeout.mWheel != null) {
+            throw new IllegalStateException("the timeout is scheduled already");
+        }
+        timeout.mWheel = this;
+        if (timeout.mCancelled) {
+            timeout.onCancel();
+            return;
+        }
+        periodNanos = Math.min(periodNanos, MAX_DELAY_NANOS);
+        delayNanos = Math.min(delayNanos, MAX_DELAY_NANOS);
+        timeout.mPeriodTicks = periodNanos <= 0 ? 0 : Math.max(1, (periodNanos + mTickNanos - 1) / mTickNanos);
+        long now = System.nanoTime();
+        if (mCount == 0) {
+            // idle, start ticking from now
+            mTickTime = now + mTickNanos;
+        }
+        long ticks = Math.max(0, (delayNanos - (mTickTime - now) + mTickNanos - 1) / mTickNanos);
+        link(timeout, mTick + ticks);
+        if (mThread == null) {
+            mThread = new Thread(this, mName);
+            mThread.setDaemon(true);
+            mThread.start();
+        } else if (mCount == 1) {
+            notify();
+        }
+    }
+
+    private void cancel(Timeout timeout) {
+        synchronized (this) {
+            if (timeout.mCancelled) {
+                return;
+            }
+            timeout.mCancelled = true;
+            if (timeout.mLinked) {
+                unlink(timeout);
+            }
+        }
+        timeout.onCancel();
+    }
+
+    @Override
+    public void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                try {
+                    awaitTick();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                expire(expired);
+            }
+            for (int i = 0; i < expired.size(); i++) {
+                Timeout timeout = expired.get(i);
+                // a timeout which runs once is claimed by the expiration, a periodic one may be cancelled since
+                if (timeout.mPeriodTicks == 0 || !timeout.mCancelled) {
+                    try {
+                        timeout.run();
+                    } catch (Throwable e) {
+                        EventBusLog.w(TAG, "a timeout failed", e);
+                    }
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    private void awaitTick() throws InterruptedException {
+        while (true) {
+            if (mCount == 0) {
+                wait();
+                continue;
+            }
+            long delay = mTickTime - System.nanoTime();
+            if (delay <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, delay);
+        }
+    }
+
+    /**
+     * unlink the due timeouts of the bucket of the current tick, and link the periodic ones again.
+     * the tick is advanced first, the rounds of a linked timeout count the visits of its bucket from the next tick
+     */
+    private void expire(List<Timeout> expired) {
+        long tick = mTick;
+        mTick = tick + 1;
+        mTickTime += mTickNanos;
+        Timeout timeout = mBuckets[(int) (tick & mMask)];
+        while (timeout != null) {
+            Timeout next = timeout.mNext;
+            if (timeout.mRounds > 0) {
+                timeout.mRounds--;
+            } else {
+                unlink(timeout);
+                expired.add(timeout);
+                if (timeout.mPeriodTicks > 0) {
+                    link(timeout, tick + timeout.mPeriodTicks);
+                } else {
+                    timeout.mCancelled = true;
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private void link(Timeout timeout, long deadline) {
+        int bucket = (int) (deadline & mMask);
+        timeout.mBucket = bucket;
+        timeout.mRounds = (deadline - mTick) >>> mShift;
+        timeout.mPrev = null;
+        timeout.mNext = mBuckets[bucket];
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrev = timeout;
+        }
+        mBuckets[bucket] = timeout;
+        timeout.mLinked = true;
+        mCount++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.mPrev != null) {
+            timeout.mPrev.mNext = timeout.mNext;
+        } else {
+            mBuckets[timeout.mBucket] = timeout.mNext;
+        }
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrev = timeout.mPrev;
+        }
+        timeout.mPrev = null;
+        timeout.mNext = null;
+        timeout.mLinked = false;
+        mCount--;
+    }
+
+    /**
+     * <h1>Timeout</h1>
+     * a scheduled task and its cancellation handle, it is the node of its bucket list,
+     * so scheduling it allocates nothing else
+     */
+    abstract static class Timeout implements Subscription {
+
+        private volatile TimerWheel mWheel;
+        private Timeout mPrev;
+        private Timeout mNext;
+        private int mBucket;
+        private long mRounds;
+        private long mPeriodTicks;
+        private boolean mLinked;
+        private volatile boolean mCancelled;
+
+        /**
+         * run in the timer thread when the timeout is due
+         */
+        abstract void run();
+
+        /**
+         * called once when the timeout is cancelled before it runs, or between its periodic runs,
+         * it does nothing by default
+         */
+        void onCancel() {
+        }
+
+        /**
+         * cancel the timeout, a running timeout is not interrupted
+         */
+        @Override
+        public final void unsubscribe() {
+            TimerWheel wheel = mWheel;
+            if (wheel != null) {
+                wheel.cancel(this);
+            } else {
+                mCancelled = true;
+            }
+        }
+
+        /**
+         * @return {@code true} if the timeout is cancelled, or it has run once and it is not periodic
+         */
+        @Override
+        public final boolean isUnsubscribed() {
+            return mCancelled;
+        }
+    }
+
+    private static final class DefaultHolder {
+
+        static final TimerWheel WHEEL = new TimerWheel(DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE, "RxEventBus-timer");
+    }
+}
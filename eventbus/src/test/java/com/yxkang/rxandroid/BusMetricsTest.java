@@ -0,0 +1,192 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.functions.Action1;
+import rx.functions.Action2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the counters, the latency buckets and the snapshots of the dispatch metrics, and the slow handler
+ * is told apart from the other subscribers of the event
+ */
+public class BusMetricsTest {
+
+    /**
+     * the drains are run by the test, the test thread is main thread once it has run one
+     */
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDrains.add(command);
+        }
+    })).build();
+
+    @Test
+    public void disabledMetricsAreNull() {
+        assertNull(mBus.getMetrics());
+        mBus.setMetricsEnabled(true);
+        mBus.post(new Event());
+        assertEquals(1, mBus.getMetrics().getTypes().get(Event.class).getPostCount());
+        mBus.setMetricsEnabled(false);
+        assertNull(mBus.getMetrics());
+        // enabling again starts from zero
+        mBus.setMetricsEnabled(true);
+        assertTrue(mBus.getMetrics().getTypes().isEmpty());
+    }
+
+    @Test
+    public void snapshotCountsQueuedEvents() {
+        mBus.setMetricsEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            mBus.post(new Event(), Priority.NORMAL);
+        }
+        mBus.post(new Event(), Priority.HIGH);
+        mBus.post(new Event(), Priority.HIGH);
+        EventBusMetrics queued = mBus.getMetrics();
+        assertEquals(3, queued.getQueueDepth(Priority.NORMAL));
+        assertEquals(2, queued.getQueueDepth(Priority.HIGH));
+        assertEquals(0, queued.getQueueDepth(Priority.LOW));
+        assertEquals(5, queued.getBacklog());
+        assertEquals(5, queued.getTypes().get(Event.class).getPostCount());
+        assertEquals(0, queued.getTypes().get(Event.class).getDeliverCount());
+
+        runDrains();
+        EventBusMetrics delivered = mBus.getMetrics();
+        assertEquals(0, delivered.getBacklog());
+        assertEquals(5, delivered.getTypes().get(Event.class).getDeliverCount());
+        long latencies = 0;
+        for (int i = 0; i < delivered.getLatencyBucketCount(); i++) {
+            latencies += delivered.getLatencyCount(i);
+        }
+        assertEquals(5, latencies);
+        // a snapshot doesn't change afterwards
+        assertEquals(5, queued.getBacklog());
+        assertEquals(0, queued.getTypes().get(Event.class).getDeliverCount());
+    }
+
+    @Test
+    public void latencyBuckets() {
+        assertEquals(0, EventBusMetrics.latencyBucket(0));
+        assertEquals(0, EventBusMetrics.latencyBucket(TimeUnit.MICROSECONDS.toNanos(99)));
+        assertEquals(1, EventBusMetrics.latencyBucket(TimeUnit.MICROSECONDS.toNanos(100)));
+        assertEquals(2, EventBusMetrics.latencyBucket(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertEquals(3, EventBusMetrics.latencyBucket(TimeUnit.MILLISECONDS.toNanos(15)));
+        assertEquals(6, EventBusMetrics.latencyBucket(TimeUnit.MILLISECONDS.toNanos(499)));
+        int last = EventBusMetrics.LATENCY_BUCKET_COUNT - 1;
+        assertEquals(last, EventBusMetrics.latencyBucket(TimeUnit.MILLISECONDS.toNanos(500)));
+        assertEquals(last, EventBusMetrics.latencyBucket(Long.MAX_VALUE));
+
+        becomeMainThread();
+        mBus.setMetricsEnabled(true);
+        EventBusMetrics metrics = mBus.getMetrics();
+        assertEquals(EventBusMetrics.LATENCY_BUCKET_COUNT, metrics.getLatencyBucketCount());
+        assertEquals(100, metrics.getLatencyBucketBound(0));
+        assertEquals(Long.MAX_VALUE, metrics.getLatencyBucketBound(last));
+
+        // an event delivered at once in main thread has no latency
+        mBus.post(new Event());
+        assertEquals(1, mBus.getMetrics().getLatencyCount(0));
+    }
+
+    @Test
+    public void slowHandlerIsTold() {
+        becomeMainThread();
+        mBus.setMetricsEnabled(true, 2, TimeUnit.MILLISECONDS);
+        mBus.subscribe(new Fast(), mBus.ofType(Event.class), new Action2<Fast, Event>() {
+            @Override
+            public void call(Fast fast, Event event) {
+            }
+        });
+        mBus.subscribe(new Slow(), mBus.ofType(Event.class), new Action2<Slow, Event>() {
+            @Override
+            public void call(Slow slow, Event event) {
+                long start = System.nanoTime();
+                while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(10)) {
+                    // a slow subscriber
+                }
+            }
+        });
+        mBus.post(new Event());
+
+        EventBusMetrics metrics = mBus.getMetrics();
+        EventBusMetrics.HandlerMetrics slow = metrics.getHandlers().get(Slow.class);
+        assertEquals(1, slow.getCallCount());
+        assertEquals(1, slow.getSlowCount());
+        assertTrue(slow.getMaxCallNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+        EventBusMetrics.HandlerMetrics fast = metrics.getHandlers().get(Fast.class);
+        assertEquals(1, fast.getCallCount());
+        assertEquals(0, fast.getSlowCount());
+        EventBusMetrics.TypeMetrics type = metrics.getTypes().get(Event.class);
+        assertEquals(1, type.getSlowCount());
+        assertTrue(type.getMaxDispatchNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    public void throwingHandlerIsCounted() {
+        becomeMainThread();
+        mBus.setMetricsEnabled(true);
+        mBus.subscribe(new Slow(), mBus.ofType(Event.class), new Action2<Slow, Event>() {
+            @Override
+            public void call(Slow slow, Event event) {
+                throw new IllegalStateException();
+            }
+        });
+        try {
+            mBus.post(new Event());
+            fail();
+        } catch (OnErrorNotImplementedException expected) {
+        }
+        EventBusMetrics metrics = mBus.getMetrics();
+        assertEquals(1, metrics.getTypes().get(Event.class).getDeliverCount());
+        assertEquals(1, metrics.getHandlers().get(Slow.class).getCallCount());
+    }
+
+    @Test
+    public void anonymousSubscriberHasNoHandlerMetrics() {
+        becomeMainThread();
+        mBus.setMetricsEnabled(true);
+        mBus.ofType(Event.class).subscribe(new Action1<Event>() {
+            @Override
+            public void call(Event event) {
+            }
+        });
+        mBus.post(new Event());
+        EventBusMetrics metrics = mBus.getMetrics();
+        assertTrue(metrics.getHandlers().isEmpty());
+        assertNotNull(metrics.getTypes().get(Event.class));
+        assertEquals(1, metrics.getTypes().get(Event.class).getDeliverCount());
+    }
+
+    private void becomeMainThread() {
+        mBus.post(new Object());
+        runDrains();
+    }
+
+    private void runDrains() {
+        while (!mDrains.isEmpty()) {
+            mDrains.remove(0).run();
+        }
+    }
+
+    static final class Event {
+    }
+
+    static final class Fast {
+    }
+
+    static final class Slow {
+    }
+}
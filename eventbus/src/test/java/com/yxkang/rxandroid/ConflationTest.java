@@ -0,0 +1,46 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the conflated events which are never delivered are released
+ */
+public class ConflationTest {
+
+    /**
+     * never runs a drain, so the conflated events keep waiting
+     */
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+        }
+    })).build();
+
+    @Test
+    public void replacedEventIsReleased() {
+        Progress first = new Progress();
+        Progress second = new Progress();
+        mBus.postConflated("task", first);
+        mBus.postConflated("task", second);
+        assertEquals(0, first.refCount());
+        assertEquals(1, second.refCount());
+    }
+
+    @Test
+    public void shutdownReleasesWaitingEvents() {
+        Progress event = new Progress();
+        mBus.postConflated("task", event);
+        mBus.shutdown();
+        assertEquals(0, event.refCount());
+        Progress late = new Progress();
+        mBus.postConflated("task", late);
+        assertEquals(0, late.refCount());
+    }
+
+    static final class Progress extends RecyclableEvent {
+    }
+}
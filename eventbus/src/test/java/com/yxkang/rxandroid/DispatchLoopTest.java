@@ -0,0 +1,113 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * the events posted by a subscriber are dispatched after the current event in their order,
+ * even if a subscriber throws, and the first failure is thrown after all of them
+ */
+public class DispatchLoopTest {
+
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDrains.add(command);
+        }
+    })).build();
+    private final List<Object> mReceived = new ArrayList<>();
+
+    @Test
+    public void nestedPostsAreDispatchedAfterCurrentEvent() {
+        mBus.ofType(String.class).subscribe(new Action1<String>() {
+            @Override
+            public void call(String event) {
+                mReceived.add(event);
+                if (event.equals("a")) {
+                    mBus.post("b");
+                    mBus.post("c");
+                    mReceived.add("a done");
+                }
+            }
+        });
+        postInMainThread("a");
+        assertEquals(list("a", "a done", "b", "c"), mReceived);
+    }
+
+    @Test
+    public void nestedPostsSurviveThrowingSubscriber() {
+        final IllegalStateException first = new IllegalStateException("a");
+        mBus.ofType(Object.class).subscribe(new Action1<Object>() {
+            @Override
+            public void call(Object event) {
+                mReceived.add(event);
+            }
+        });
+        // rx unsubscribes a throwing subscriber, so each failure has a subscriber of its own,
+        // they are called after the first one
+        mBus.ofType(Object.class).subscribe(new Action1<Object>() {
+            @Override
+            public void call(Object event) {
+                if ("a".equals(event)) {
+                    mBus.post(new Nested());
+                    mBus.post("b");
+                    throw first;
+                }
+            }
+        });
+        mBus.ofType(Object.class).subscribe(new Action1<Object>() {
+            @Override
+            public void call(Object event) {
+                if ("b".equals(event)) {
+                    throw new IllegalStateException("b");
+                }
+            }
+        });
+        try {
+            postInMainThread("a");
+            fail();
+        } catch (OnErrorNotImplementedException e) {
+            assertSame(first, e.getCause());
+        }
+        assertEquals(3, mReceived.size());
+        Nested nested = (Nested) mReceived.get(1);
+        assertEquals(0, nested.refCount());
+        assertEquals("b", mReceived.get(2));
+
+        mBus.post("c");
+        assertEquals(4, mReceived.size());
+        assertEquals("c", mReceived.get(3));
+    }
+
+    /**
+     * the first post is queued, the test thread is main thread while it runs the drain
+     */
+    private void postInMainThread(Object event) {
+        mBus.post(event);
+        while (!mDrains.isEmpty()) {
+            mDrains.remove(0).run();
+        }
+    }
+
+    private static List<Object> list(Object... events) {
+        List<Object> list = new ArrayList<>();
+        for (Object event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+
+    static final class Nested extends RecyclableEvent {
+    }
+}
@@ -0,0 +1,173 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * an {@link EventBridge} over in-memory streams
+ */
+public class EventBridgeStreamTest {
+
+    /**
+     * {@code varint 1, varint 7, utf "local"}
+     */
+    private static final int LOCAL_FRAME_SIZE = 9;
+
+    private final RxEventBus mBus = new RxEventBus(new ExecutorDispatcher());
+    private final PipedOutputStream mRemote = new PipedOutputStream();
+    private final ByteArrayOutputStream mSent = new ByteArrayOutputStream();
+    private final EventBridge mBridge = new EventBridge.Builder()
+            .bus(mBus)
+            .register(1, Text.class, new TextCodec())
+            .build();
+
+    @Test(timeout = 10000)
+    public void receivedEventIsNotSentBack() throws Exception {
+        mBridge.start(new PipedInputStream(mRemote), mSent);
+        // subscribed after the bridge, so the bridge has seen an event once it is received here
+        final CountDownLatch received = new CountDownLatch(1);
+        mBus.ofType(Text.class).subscribe(new Action1<Text>() {
+            @Override
+            public void call(Text text) {
+                received.countDown();
+            }
+        });
+        DataOutputStream remote = new DataOutputStream(mRemote);
+        EventBridge.writeVarint(remote, 1);
+        EventBridge.writeVarint(remote, 8);
+        remote.writeUTF("remote");
+        remote.flush();
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        // the remote event would be written before the local one
+        mBus.post(new Text("local"));
+        while (mSent.size() < LOCAL_FRAME_SIZE) {
+            Thread.sleep(10);
+        }
+        mBridge.close();
+        DataInputStream sent = new DataInputStream(new ByteArrayInputStream(mSent.toByteArray()));
+        assertEquals(1, EventBridge.readVarint(sent));
+        assertEquals(7, EventBridge.readVarint(sent));
+        assertEquals("local", sent.readUTF());
+        assertEquals(0, sent.available());
+    }
+
+    @Test(timeout = 10000)
+    public void eventsLeftByFailedWriteAreReleased() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch fail = new CountDownLatch(1);
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writing.countDown();
+                try {
+                    fail.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("broken");
+            }
+        };
+        EventBridge bridge = new EventBridge.Builder()
+                .bus(mBus)
+                .register(2, Pooled.class, new PooledCodec())
+                .build();
+        bridge.start(new PipedInputStream(mRemote), broken);
+        final CountDownLatch delivered = new CountDownLatch(3);
+        mBus.ofType(Pooled.class).subscribe(new Action1<Pooled>() {
+            @Override
+            public void call(Pooled event) {
+                delivered.countDown();
+            }
+        });
+        Pooled[] events = new Pooled[3];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Pooled();
+            RecyclableEvent.retain(events[i]);
+            mBus.post(events[i]);
+            if (i == 0) {
+                assertTrue(writing.await(5, TimeUnit.SECONDS));
+            }
+        }
+        // the other events are queued behind the blocked write
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        fail.countDown();
+        while (!bridge.isClosed()) {
+            Thread.sleep(10);
+        }
+        // only the references of the test are left
+        for (Pooled event : events) {
+            while (event.refCount() != 1) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shutdownClosesBridge() throws Exception {
+        mBridge.start(new PipedInputStream(mRemote), mSent);
+        mBus.shutdown();
+        assertTrue(mBridge.isClosed());
+    }
+
+    static final class Text {
+
+        final String mText;
+
+        Text(String text) {
+            mText = text;
+        }
+    }
+
+    static final class TextCodec implements EventCodec<Text> {
+
+        @Override
+        public void encode(Text event, DataOutput out) throws IOException {
+            out.writeUTF(event.mText);
+        }
+
+        @Override
+        public Text decode(DataInput in) throws IOException {
+            return new Text(in.readUTF());
+        }
+    }
+
+    static final class Pooled extends RecyclableEvent {
+    }
+
+    static final class PooledCodec implements EventCodec<Pooled> {
+
+        @Override
+        public void encode(Pooled event, DataOutput out) throws IOException {
+            out.writeByte(0);
+        }
+
+        @Override
+        public Pooled decode(DataInput in) throws IOException {
+            in.readByte();
+            return new Pooled();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.yxkang.rxandroid;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the journal rotates its segments, replays the kept records in order, and skips the events it can't append
+ * or which a child bus only forwards
+ */
+public class EventJournalTest {
+
+    /**
+     * a record is the 8 bytes header and the 4 bytes payload, so a segment holds 5 records
+     */
+    private static final int SEGMENT_SIZE = 64;
+    private static final int RECORD_SIZE = 12;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDrains.add(command);
+        }
+    })).build();
+    private final List<Integer> mReplayed = new ArrayList<>();
+    private EventJournal mJournal;
+
+    @After
+    public void tearDown() {
+        if (mJournal != null) {
+            mJournal.close();
+        }
+        mBus.shutdown();
+    }
+
+    @Test
+    public void nullAndUnregisteredEventsAreNotAppended() throws IOException {
+        mJournal = open();
+        mBus.setJournal(mJournal);
+        assertEquals(-1, mJournal.append(null));
+        assertEquals(-1, mJournal.append("unregistered"));
+        mBus.post(null);
+        mBus.post("unregistered");
+        assertEquals(0, mJournal.getEndOffset());
+
+        mBus.post(new Message(1));
+        assertEquals(RECORD_SIZE, mJournal.getEndOffset());
+    }
+
+    @Test
+    public void oldestSegmentsAreDeleted() throws IOException {
+        mJournal = open();
+        long previous = -1;
+        for (int i = 0; i < 20; i++) {
+            long offset = mJournal.append(new Message(i));
+            assertEquals(previous < 0 ? 0 : previous + RECORD_SIZE, offset);
+            previous = offset;
+        }
+        // segments 0, 60, 120 and 180 were written, the last 2 are kept
+        assertEquals(4 * 5 * RECORD_SIZE, mJournal.getEndOffset());
+        assertEquals(2 * 5 * RECORD_SIZE, mJournal.getStartOffset());
+
+        assertEquals(mJournal.getEndOffset(), replay(0));
+        assertEquals(range(10, 20), mReplayed);
+    }
+
+    @Test
+    public void replayFromOffset() throws IOException {
+        mJournal = open();
+        mBus.setJournal(mJournal);
+        long third = 0;
+        for (int i = 0; i < 8; i++) {
+            long offset = mJournal.append(new Message(i));
+            if (i == 3) {
+                third = offset;
+            }
+        }
+        long end = mJournal.getEndOffset();
+        assertEquals(end, replay(third));
+        assertEquals(range(3, 8), mReplayed);
+        // the replayed events are not appended again
+        assertEquals(end, mJournal.getEndOffset());
+    }
+
+    @Test
+    public void reopenContinuesAfterLastRecord() throws IOException {
+        mJournal = open();
+        for (int i = 0; i < 7; i++) {
+            mJournal.append(new Message(i));
+        }
+        long end = mJournal.getEndOffset();
+        mJournal.close();
+        assertEquals(-1, mJournal.append(new Message(7)));
+
+        mJournal = open();
+        assertEquals(end, mJournal.getEndOffset());
+        assertEquals(end, mJournal.append(new Message(7)));
+        assertEquals(end + RECORD_SIZE, replay(0));
+        assertEquals(range(0, 8), mReplayed);
+    }
+
+    @Test
+    public void forwardedEventsAreAppendedByChildOnly() throws IOException {
+        mJournal = open();
+        mBus.setJournal(mJournal);
+        RxEventBus child = new RxEventBus.Builder().parent(mBus).forward(Message.class).build();
+        child.post(new Message(0));
+        child.post(new Message(1), false);
+        child.postConflated("key", new Message(2));
+        child.postSticky(new Message(3));
+        assertEquals(0, mJournal.getEndOffset());
+
+        // a child with a journal of its own appends them
+        EventJournal childJournal = new EventJournal.Builder(mFolder.newFolder())
+                .register(1, Message.class, new MessageCodec())
+                .build();
+        try {
+            child.setJournal(childJournal);
+            child.post(new Message(4));
+            assertEquals(RECORD_SIZE, childJournal.getEndOffset());
+            assertEquals(0, mJournal.getEndOffset());
+        } finally {
+            childJournal.close();
+            child.shutdown();
+        }
+
+        mBus.post(new Message(5));
+        assertEquals(RECORD_SIZE, mJournal.getEndOffset());
+    }
+
+    private EventJournal open() throws IOException {
+        return new EventJournal.Builder(mFolder.getRoot())
+                .segmentSize(SEGMENT_SIZE)
+                .maxSegments(2)
+                .register(1, Message.class, new MessageCodec())
+                .build();
+    }
+
+    private long replay(long offset) throws IOException {
+        mBus.ofType(Message.class).subscribe(new Action1<Message>() {
+            @Override
+            public void call(Message message) {
+                mReplayed.add(message.mValue);
+            }
+        });
+        long end = mJournal.replay(offset, mBus);
+        while (!mDrains.isEmpty()) {
+            mDrains.remove(0).run();
+        }
+        return end;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    static final class Message {
+
+        final int mValue;
+
+        Message(int value) {
+            mValue = value;
+        }
+    }
+
+    static final class MessageCodec implements EventCodec<Message> {
+
+        @Override
+        public void encode(Message event, DataOutput out) throws IOException {
+            out.writeInt(event.mValue);
+        }
+
+        @Override
+        public Message decode(DataInput in) throws IOException {
+            return new Message(in.readInt());
+        }
+    }
+}
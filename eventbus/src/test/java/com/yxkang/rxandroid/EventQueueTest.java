@@ -0,0 +1,114 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the priority lanes and the scheduled flag of {@link EventQueue}
+ */
+public class EventQueueTest {
+
+    private final List<Object> mDelivered = new ArrayList<>();
+    private int mReschedules;
+    private final EventQueue mQueue = new EventQueue(new EventQueue.Consumer() {
+        @Override
+        public void accept(Object event) {
+            if (event instanceof RuntimeException) {
+                throw (RuntimeException) event;
+            }
+            mDelivered.add(event);
+        }
+
+        @Override
+        public void reschedule() {
+            mReschedules++;
+        }
+    });
+
+    @Test
+    public void higherLanesFirst() {
+        mQueue.offer(Priority.LOW, Priority.LOW);
+        mQueue.offer(Priority.NORMAL, Priority.NORMAL);
+        mQueue.offer(Priority.HIGH, Priority.HIGH);
+        assertTrue(mQueue.drain(0));
+        assertEquals(3, mDelivered.size());
+        assertEquals(Priority.HIGH, mDelivered.get(0));
+        assertEquals(Priority.NORMAL, mDelivered.get(1));
+        assertEquals(Priority.LOW, mDelivered.get(2));
+    }
+
+    @Test
+    public void noLaneStarves() {
+        for (int i = 0; i < 1000; i++) {
+            for (Priority priority : Priority.values()) {
+                mQueue.offer(priority, priority);
+            }
+        }
+        mQueue.drain(0);
+        // the high lane is busy all the time, both lower lanes still get their shares
+        List<Object> first = mDelivered.subList(0, 200);
+        assertTrue(first.contains(Priority.NORMAL));
+        assertTrue(first.contains(Priority.LOW));
+        assertEquals(3000, mDelivered.size());
+    }
+
+    @Test
+    public void throwingConsumerReschedulesDrain() {
+        assertTrue(mQueue.offer(new IllegalStateException(), Priority.NORMAL));
+        assertFalse(mQueue.offer("pending", Priority.LOW));
+        try {
+            mQueue.drain();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // the events left are drained without another offer, which doesn't schedule a second drain
+        assertEquals(1, mReschedules);
+        assertFalse(mQueue.offer("next", Priority.NORMAL));
+        assertTrue(mQueue.drain(0));
+        assertEquals(2, mDelivered.size());
+        assertEquals("next", mDelivered.get(0));
+        assertEquals("pending", mDelivered.get(1));
+        assertEquals(0, mQueue.depth());
+    }
+
+    @Test
+    public void throwingConsumerOfLastEventClearsScheduledFlag() {
+        assertTrue(mQueue.offer(new IllegalStateException(), Priority.NORMAL));
+        try {
+            mQueue.drain();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        // nothing is left, the next offer schedules the drain
+        assertEquals(0, mReschedules);
+        assertTrue(mQueue.offer("next", Priority.NORMAL));
+        assertTrue(mQueue.drain(0));
+        assertEquals(1, mDelivered.size());
+    }
+
+    @Test
+    public void budgetLeavesEventsQueued() {
+        for (int i = 0; i < 100; i++) {
+            mQueue.offer(new Delivery() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    while (System.nanoTime() - start < 100000) {
+                        // a slow subscriber
+                    }
+                }
+            }, Priority.NORMAL);
+        }
+        assertFalse(mQueue.drain(1000000));
+        assertTrue(mQueue.depth() > 0);
+        assertTrue(mQueue.drain(0));
+        assertEquals(0, mQueue.depth());
+    }
+}
@@ -0,0 +1,190 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * a drain whose frame budget is used up leaves the backlog to the next frame: the first drain is run by
+ * {@link MainThreadDispatcher#dispatch(Runnable)}, the deferred ones by {@link FrameDispatcher#dispatchNextFrame(Runnable)}
+ */
+public class FrameBudgetTest {
+
+    /**
+     * a slow event spins for the whole budget, so the budget is always used up right after it
+     */
+    private static final long BUDGET_MILLIS = 20;
+
+    private final Frames mFrames = new Frames();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(mFrames).build();
+    private final List<String> mReceived = new ArrayList<>();
+
+    @Test
+    public void backlogIsSplitAcrossFrames() {
+        mBus.setFrameBudget(BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+        mBus.setMetricsEnabled(true);
+        record(mBus);
+        post(mBus, "a", "b", "slow c", "d", "e", "slow f", "g");
+        assertEquals(1, mFrames.mDispatched.size());
+        assertEquals(0, mFrames.mNextFrame.size());
+
+        // the first drain runs at once, not at a frame
+        mFrames.run(mFrames.mDispatched);
+        assertEquals(3, mReceived.size());
+        assertEquals("slow c", mReceived.get(2));
+        assertEquals(4, mBus.getBacklog());
+        assertEquals(1, mFrames.mNextFrame.size());
+        assertEquals(0, mFrames.mDispatched.size());
+
+        mFrames.run(mFrames.mNextFrame);
+        assertEquals(6, mReceived.size());
+        assertEquals("slow f", mReceived.get(5));
+        assertEquals(1, mBus.getBacklog());
+        assertEquals(1, mFrames.mNextFrame.size());
+
+        mFrames.run(mFrames.mNextFrame);
+        assertEquals(7, mReceived.size());
+        assertEquals(0, mBus.getBacklog());
+        assertEquals(0, mFrames.mNextFrame.size());
+        assertEquals(0, mFrames.mDispatched.size());
+
+        EventBusMetrics metrics = mBus.getMetrics();
+        assertEquals(2, metrics.getDeferredDrainCount());
+        assertEquals(4, metrics.getMaxBacklog());
+        assertEquals(0, metrics.getBacklog());
+    }
+
+    @Test
+    public void leftoversCarryOver() {
+        mBus.setFrameBudget(BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+        record(mBus);
+        post(mBus, "slow a", "b");
+        mFrames.run(mFrames.mDispatched);
+        assertEquals(1, mReceived.size());
+
+        // the deferred drain is pending, a post doesn't schedule another one
+        post(mBus, "c");
+        assertEquals(0, mFrames.mDispatched.size());
+        assertEquals(1, mFrames.mNextFrame.size());
+        assertEquals(2, mBus.getBacklog());
+
+        // the leftovers go first at the next frame
+        mFrames.run(mFrames.mNextFrame);
+        assertEquals(3, mReceived.size());
+        assertEquals("b", mReceived.get(1));
+        assertEquals("c", mReceived.get(2));
+        assertEquals(0, mFrames.mNextFrame.size());
+
+        // once the queue is empty, a post schedules a new drain at once
+        post(mBus, "d");
+        assertEquals(1, mFrames.mDispatched.size());
+    }
+
+    @Test
+    public void noBudgetDrainsAll() {
+        mBus.setMetricsEnabled(true);
+        record(mBus);
+        post(mBus, "slow a", "slow b", "slow c");
+        mFrames.run(mFrames.mDispatched);
+        assertEquals(3, mReceived.size());
+        assertEquals(0, mFrames.mNextFrame.size());
+        assertEquals(0, mBus.getMetrics().getDeferredDrainCount());
+        assertEquals(0, mBus.getMetrics().getMaxBacklog());
+    }
+
+    @Test
+    public void otherDispatcherDefersByDispatch() {
+        final List<Runnable> drains = new ArrayList<>();
+        RxEventBus bus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                drains.add(command);
+            }
+        })).build();
+        bus.setFrameBudget(BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+        bus.setMetricsEnabled(true);
+        record(bus);
+        post(bus, "slow a", "slow b", "c");
+
+        drains.remove(0).run();
+        assertEquals(1, mReceived.size());
+        assertEquals(1, drains.size());
+        drains.remove(0).run();
+        assertEquals(2, mReceived.size());
+        drains.remove(0).run();
+        assertEquals(3, mReceived.size());
+        assertTrue(drains.isEmpty());
+        assertEquals(2, bus.getMetrics().getDeferredDrainCount());
+        assertEquals(2, bus.getMetrics().getMaxBacklog());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBudgetIsRejected() {
+        mBus.setFrameBudget(-1, TimeUnit.MILLISECONDS);
+    }
+
+    private void record(RxEventBus bus) {
+        bus.ofType(String.class).subscribe(new Action1<String>() {
+            @Override
+            public void call(String event) {
+                mReceived.add(event);
+                if (event.startsWith("slow")) {
+                    long start = System.nanoTime();
+                    while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(BUDGET_MILLIS)) {
+                        // uses up the budget
+                    }
+                }
+            }
+        });
+    }
+
+    private static void post(RxEventBus bus, String... events) {
+        for (String event : events) {
+            bus.post(event);
+        }
+    }
+
+    /**
+     * the drains and the frame callbacks are run by the test, the test thread is main thread only while it runs one
+     */
+    private static final class Frames implements FrameDispatcher {
+
+        final List<Runnable> mDispatched = new ArrayList<>();
+        final List<Runnable> mNextFrame = new ArrayList<>();
+        private boolean mRunning;
+
+        @Override
+        public boolean isMainThread() {
+            return mRunning;
+        }
+
+        @Override
+        public void dispatch(Runnable drain) {
+            mDispatched.add(drain);
+        }
+
+        @Override
+        public void dispatchNextFrame(Runnable drain) {
+            assertTrue(mRunning);
+            mNextFrame.add(drain);
+        }
+
+        void run(List<Runnable> drains) {
+            Runnable drain = drains.remove(0);
+            mRunning = true;
+            try {
+                drain.run();
+            } finally {
+                mRunning = false;
+            }
+        }
+    }
+}
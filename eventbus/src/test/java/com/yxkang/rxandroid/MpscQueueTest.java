@@ -0,0 +1,75 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * the elements of a producer are polled in their order, and no element is lost while the producers race
+ */
+public class MpscQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int ELEMENTS = 100000;
+
+    @Test
+    public void pollInOfferOrder() {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+        assertNull(queue.poll());
+        for (int i = 0; i < 3; i++) {
+            queue.offer(i);
+        }
+        assertEquals(0, (int) queue.poll());
+        queue.offer(3);
+        for (int i = 1; i < 4; i++) {
+            assertEquals(i, (int) queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void racingProducers() throws InterruptedException {
+        final MpscQueue<long[]> queue = new MpscQueue<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < producers.length; p++) {
+            final int producer = p;
+            producers[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < ELEMENTS; i++) {
+                        queue.offer(new long[]{producer, i});
+                    }
+                }
+            };
+            producers[p].start();
+        }
+        start.countDown();
+
+        long[] next = new long[PRODUCERS];
+        int polled = 0;
+        while (polled < PRODUCERS * ELEMENTS) {
+            long[] e = queue.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (int) e[0];
+            assertEquals(next[producer], e[1]);
+            next[producer]++;
+            polled++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertNull(queue.poll());
+    }
+}
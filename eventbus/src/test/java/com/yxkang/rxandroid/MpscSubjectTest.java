@@ -0,0 +1,181 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * the notifications of many threads are emitted one at a time in the order of every thread, a throwing subscriber doesn't stop the drain,
+ * and a queued recyclable event is retained until it is emitted
+ */
+public class MpscSubjectTest {
+
+    private static final int THREADS = 4;
+    private static final int EVENTS = 50000;
+
+    private final MpscSubject<Object> mSubject = new MpscSubject<>(PublishSubject.create());
+    private final List<Object> mReceived = new ArrayList<>();
+
+    @Test
+    public void concurrentNotificationsAreSerialInOrder() throws InterruptedException {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final int[] count = new int[1];
+        final int[] next = new int[THREADS];
+        final int[] disorders = new int[1];
+        mSubject.unsafeSubscribe(new Subscriber<Object>() {
+            @Override
+            public void onNext(Object o) {
+                if (active.incrementAndGet() != 1) {
+                    overlaps.incrementAndGet();
+                }
+                int[] notification = (int[]) o;
+                if (next[notification[0]]++ != notification[1]) {
+                    disorders[0]++;
+                }
+                count[0]++;
+                active.decrementAndGet();
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+        });
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < threads.length; i++) {
+            final int poster = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < EVENTS; j++) {
+                        mSubject.onNext(new int[]{poster, j});
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, overlaps.get());
+        // the last thread to leave has drained the queue, and the joins publish the plain counters
+        assertEquals(THREADS * EVENTS, count[0]);
+        // a notification queued behind a producer which hasn't linked its node yet used to be overtaken
+        assertEquals(0, disorders[0]);
+    }
+
+    @Test
+    public void throwingSubscriberDoesNotStopDrain() {
+        final IllegalStateException first = new IllegalStateException("a");
+        mSubject.unsafeSubscribe(new Recorder() {
+            @Override
+            public void onNext(Object o) {
+                super.onNext(o);
+                if ("a".equals(o)) {
+                    // the subject is busy, so the notifications are queued for the drain of "a"
+                    mSubject.onNext("b");
+                    mSubject.onNext(null);
+                    mSubject.onCompleted();
+                    mSubject.onNext("late");
+                    throw first;
+                }
+                if ("b".equals(o)) {
+                    throw new IllegalStateException("b");
+                }
+            }
+        });
+        try {
+            mSubject.onNext("a");
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(first, e);
+        }
+        assertEquals(4, mReceived.size());
+        assertEquals("a", mReceived.get(0));
+        assertEquals("b", mReceived.get(1));
+        assertEquals(null, mReceived.get(2));
+        assertSame(Recorder.COMPLETED, mReceived.get(3));
+
+        // the subject is idle again, the notifications after the terminal one are dropped
+        mSubject.onNext("after");
+        assertEquals(4, mReceived.size());
+    }
+
+    @Test
+    public void queuedRecyclableEventIsRetained() {
+        final Queued queued = new Queued();
+        final int[] whileQueued = new int[1];
+        mSubject.unsafeSubscribe(new Recorder() {
+            @Override
+            public void onNext(Object o) {
+                super.onNext(o);
+                if ("a".equals(o)) {
+                    mSubject.onNext(queued);
+                    whileQueued[0] = queued.refCount();
+                    queued.release();
+                }
+            }
+        });
+        mSubject.onNext("a");
+        assertEquals(2, whileQueued[0]);
+        assertEquals(2, mReceived.size());
+        assertSame(queued, mReceived.get(1));
+        assertEquals(0, queued.refCount());
+    }
+
+    @Test
+    public void idleSubjectEmitsAtOnce() {
+        mSubject.unsafeSubscribe(new Recorder());
+        Queued event = new Queued();
+        mSubject.onNext(event);
+        // emitted by the posting thread, the subject takes no reference
+        assertEquals(1, event.refCount());
+        assertSame(event, mReceived.get(0));
+        assertTrue(mSubject.hasObservers());
+    }
+
+    class Recorder extends Subscriber<Object> {
+
+        static final String COMPLETED = "completed";
+
+        @Override
+        public void onNext(Object o) {
+            mReceived.add(o);
+        }
+
+        @Override
+        public void onCompleted() {
+            mReceived.add(COMPLETED);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            mReceived.add(e);
+        }
+    }
+
+    static final class Queued extends RecyclableEvent {
+    }
+}
@@ -0,0 +1,139 @@
+package com.yxkang.rxandroid;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Func1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the events of a key are handled in their order, and the events dropped by an unsubscribed partition are released
+ */
+public class PartitionTest {
+
+    private static final int KEYS = 8;
+    private static final int EVENTS = 200;
+
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDrains.add(command);
+        }
+    })).build();
+    private final Func1<Keyed, Object> mKeySelector = new Func1<Keyed, Object>() {
+        @Override
+        public Object call(Keyed event) {
+            return event.mKey;
+        }
+    };
+
+    @After
+    public void tearDown() {
+        mBus.shutdown();
+    }
+
+    @Test
+    public void eventsOfKeyAreInOrder() throws InterruptedException {
+        final ConcurrentMap<Integer, List<Integer>> received = new ConcurrentHashMap<>();
+        final CountDownLatch done = new CountDownLatch(KEYS * EVENTS);
+        mBus.partition(Keyed.class, mKeySelector, 4, new Action1<Keyed>() {
+            @Override
+            public void call(Keyed event) {
+                List<Integer> values = received.get(event.mKey);
+                if (values == null) {
+                    values = new CopyOnWriteArrayList<>();
+                    List<Integer> previous = received.putIfAbsent(event.mKey, values);
+                    if (previous != null) {
+                        values = previous;
+                    }
+                }
+                values.add(event.mValue);
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < EVENTS; i++) {
+            for (int key = 0; key < KEYS; key++) {
+                mBus.post(new Keyed(key, i));
+            }
+        }
+        runDrains();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(KEYS, received.size());
+        for (List<Integer> values : received.values()) {
+            assertEquals(EVENTS, values.size());
+            for (int i = 0; i < EVENTS; i++) {
+                assertEquals(i, (int) values.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void unsubscribeReleasesQueuedEvents() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final List<Keyed> handled = new CopyOnWriteArrayList<>();
+        Subscription subscription = mBus.partition(Keyed.class, mKeySelector, 1, new Action1<Keyed>() {
+            @Override
+            public void call(Keyed event) {
+                handled.add(event);
+                entered.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        List<Keyed> events = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Keyed event = new Keyed(0, i);
+            events.add(event);
+            mBus.post(event);
+        }
+        runDrains();
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        subscription.unsubscribe();
+        resume.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Keyed event : events) {
+            while (event.refCount() != 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, event.refCount());
+        }
+        assertEquals(1, handled.size());
+    }
+
+    private void runDrains() {
+        while (!mDrains.isEmpty()) {
+            mDrains.remove(0).run();
+        }
+    }
+
+    static final class Keyed extends RecyclableEvent {
+
+        final int mKey;
+        final int mValue;
+
+        Keyed(int key, int value) {
+            mKey = key;
+            mValue = value;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the values posted from other threads are conflated, and the accumulated increments are never lost
+ */
+public class PrimitiveChannelTest {
+
+    private static final int THREADS = 4;
+    private static final int INCREMENTS = 10000;
+
+    /**
+     * the drains are run by the test, the test thread is main thread once it has run one
+     */
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            synchronized (mDrains) {
+                mDrains.add(command);
+            }
+        }
+    })).build();
+
+    @Test
+    public void postedValuesAreConflated() {
+        final List<Integer> values = new ArrayList<>();
+        IntChannel channel = mBus.intChannel("progress");
+        channel.addListener(new IntChannel.Listener() {
+            @Override
+            public void onValue(int value) {
+                values.add(value);
+            }
+        });
+        channel.post(1);
+        channel.post(2);
+        channel.post(3);
+        runDrains();
+        assertEquals(1, values.size());
+        assertEquals(3, (int) values.get(0));
+
+        // main thread now, every value is delivered
+        channel.post(4);
+        channel.post(5);
+        assertEquals(3, values.size());
+    }
+
+    @Test
+    public void accumulatedIncrementsAreNotLost() throws InterruptedException {
+        final List<Long> values = new ArrayList<>();
+        final LongChannel channel = mBus.longChannel("bytes");
+        channel.addListener(new LongChannel.Listener() {
+            @Override
+            public void onValue(long value) {
+                values.add(value);
+            }
+        });
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < INCREMENTS; j++) {
+                        channel.accumulate(1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        runDrains();
+        assertEquals(THREADS * INCREMENTS, (long) values.get(values.size() - 1));
+    }
+
+    @Test
+    public void accumulateInMainThreadDeliversEverySum() {
+        final List<Integer> values = new ArrayList<>();
+        IntChannel channel = mBus.intChannel("count");
+        channel.addListener(new IntChannel.Listener() {
+            @Override
+            public void onValue(int value) {
+                values.add(value);
+            }
+        });
+        assertEquals(2, channel.accumulate(2));
+        runDrains();
+        assertEquals(5, channel.accumulate(3));
+        assertEquals(4, channel.accumulate(-1));
+        assertEquals(3, values.size());
+        assertEquals(2, (int) values.get(0));
+        assertEquals(5, (int) values.get(1));
+        assertEquals(4, (int) values.get(2));
+    }
+
+    @Test
+    public void doubleValueKeepsItsBits() {
+        final List<Double> values = new ArrayList<>();
+        DoubleChannel channel = mBus.doubleChannel("ratio");
+        channel.addListener(new DoubleChannel.Listener() {
+            @Override
+            public void onValue(double value) {
+                values.add(value);
+            }
+        });
+        channel.post(0.25);
+        channel.post(-0.0);
+        runDrains();
+        channel.post(Double.NaN);
+        assertEquals(2, values.size());
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(values.get(0)));
+        assertTrue(Double.isNaN(values.get(1)));
+    }
+
+    private void runDrains() {
+        while (true) {
+            Runnable drain;
+            synchronized (mDrains) {
+                if (mDrains.isEmpty()) {
+                    return;
+                }
+                drain = mDrains.remove(0);
+            }
+            drain.run();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.yxkang.rxandroid;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action1;
+import rx.functions.Func0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * an event goes back to its pool with its last reference, whichever thread releases it,
+ * and the bus holds a reference while the event waits or is handed over to another thread
+ */
+public class RecyclableEventTest {
+
+    private final EventPool<Sample> mPool = new EventPool<>(new Func0<Sample>() {
+        @Override
+        public Sample call() {
+            return new Sample();
+        }
+    }, 2);
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDrains.add(command);
+        }
+    })).build();
+
+    @After
+    public void tearDown() {
+        mBus.shutdown();
+    }
+
+    @Test
+    public void releasedEventIsResetAndObtainedAgain() {
+        Sample event = mPool.obtain();
+        event.mValue = 42;
+        event.retain();
+        event.release();
+        assertEquals(0, mPool.size());
+
+        event.release();
+        assertEquals(0, event.mValue);
+        assertEquals(1, mPool.size());
+        Sample again = mPool.obtain();
+        assertSame(event, again);
+        assertEquals(1, again.refCount());
+        assertEquals(0, mPool.size());
+    }
+
+    @Test
+    public void poolKeepsAtMostMaxSize() {
+        Sample[] events = {mPool.obtain(), mPool.obtain(), mPool.obtain()};
+        for (Sample event : events) {
+            event.release();
+        }
+        assertEquals(2, mPool.size());
+    }
+
+    @Test
+    public void eventWithoutPoolIsLeftToGc() {
+        Sample event = new Sample();
+        event.mValue = 42;
+        event.release();
+        assertEquals(0, event.refCount());
+        assertEquals(42, event.mValue);
+    }
+
+    @Test
+    public void recycledEventCantBeRetainedOrReleased() {
+        Sample event = mPool.obtain();
+        event.release();
+        try {
+            event.retain();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            event.release();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void concurrentReferencesBalance() throws InterruptedException {
+        final Sample event = mPool.obtain();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100000; j++) {
+                        event.retain();
+                        event.release();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, event.refCount());
+        assertEquals(0, mPool.size());
+        event.release();
+        assertEquals(1, mPool.size());
+    }
+
+    @Test
+    public void queuedEventIsRecycledAfterDelivery() {
+        final List<Integer> received = new ArrayList<>();
+        mBus.ofType(Sample.class).subscribe(new Action1<Sample>() {
+            @Override
+            public void call(Sample event) {
+                received.add(event.mValue);
+            }
+        });
+        Sample event = mPool.obtain();
+        event.mValue = 42;
+        // posted from a background thread, the bus owns the reference while the event waits
+        mBus.post(event);
+        assertEquals(1, event.refCount());
+        runDrains();
+        assertEquals(1, received.size());
+        assertEquals(42, (int) received.get(0));
+        assertEquals(0, event.refCount());
+        assertSame(event, mPool.obtain());
+    }
+
+    @Test
+    public void asyncSubscriberHoldsReference() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final int[] value = new int[1];
+        mBus.ofType(Sample.class, ThreadMode.ASYNC).subscribe(new Action1<Sample>() {
+            @Override
+            public void call(Sample event) {
+                entered.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                value[0] = event.mValue;
+            }
+        });
+        Sample event = mPool.obtain();
+        event.mValue = 42;
+        mBus.post(event);
+        runDrains();
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        // delivered in main thread, still waiting in the async subscriber
+        assertEquals(1, event.refCount());
+        assertNotSame(event, mPool.obtain());
+
+        resume.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (event.refCount() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, event.refCount());
+        assertEquals(42, value[0]);
+    }
+
+    @Test
+    public void throwingSubscriberDoesNotLeakReference() {
+        mBus.ofType(Sample.class).subscribe(new Action1<Sample>() {
+            @Override
+            public void call(Sample event) {
+                throw new IllegalStateException("expected");
+            }
+        });
+        Sample event = mPool.obtain();
+        mBus.post(event);
+        try {
+            runDrains();
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        assertEquals(0, event.refCount());
+        assertEquals(1, mPool.size());
+    }
+
+    private void runDrains() {
+        while (!mDrains.isEmpty()) {
+            mDrains.remove(0).run();
+        }
+    }
+
+    static final class Sample extends RecyclableEvent {
+
+        int mValue;
+
+        @Override
+        protected void reset() {
+            mValue = 0;
+        }
+    }
+}
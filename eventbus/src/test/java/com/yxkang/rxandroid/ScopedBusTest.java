@@ -0,0 +1,196 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import rx.Observer;
+import rx.Subscription;
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * a scoped bus forwards the selected event types to its parent after its own delivery,
+ * and {@link RxEventBus#shutdown()} tears it down while the forwarding goes on
+ */
+public class ScopedBusTest {
+
+    /**
+     * the drains of both buses are run by the test, the test thread is main thread once it has run one
+     */
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mParent = new RxEventBus(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDrains.add(command);
+        }
+    }));
+    private final RxEventBus mChild = new RxEventBus.Builder().parent(mParent).forward(Forwarded.class, Pooled.class).build();
+    private final List<String> mReceived = new ArrayList<>();
+
+    @Test
+    public void forwardsOnlySelectedTypes() {
+        becomeMainThread();
+        record(mParent, "parent");
+        record(mChild, "child");
+        mChild.post(new Forwarded());
+        mChild.post(new SubForwarded());
+        mChild.post("local");
+        assertEquals(5, mReceived.size());
+        assertEquals("child Forwarded", mReceived.get(0));
+        assertEquals("parent Forwarded", mReceived.get(1));
+        assertEquals("child SubForwarded", mReceived.get(2));
+        assertEquals("parent SubForwarded", mReceived.get(3));
+        assertEquals("child String", mReceived.get(4));
+
+        // the parent's own posts don't reach the child
+        mParent.post(new Forwarded());
+        assertEquals("parent Forwarded", mReceived.get(5));
+        assertEquals(6, mReceived.size());
+    }
+
+    @Test
+    public void conflatedPostIsLocalFirst() {
+        becomeMainThread();
+        record(mParent, "parent");
+        record(mChild, "child");
+        mChild.postConflated("key", new Forwarded());
+        assertEquals(2, mReceived.size());
+        assertEquals("child Forwarded", mReceived.get(0));
+        assertEquals("parent Forwarded", mReceived.get(1));
+    }
+
+    @Test
+    public void forwardedRecyclableEventIsRetained() {
+        Pooled queued = new Pooled();
+        // not main thread yet, both buses queue the event
+        mChild.post(queued);
+        assertEquals(2, queued.refCount());
+        runDrains();
+        assertEquals(0, queued.refCount());
+
+        Pooled conflated = new Pooled();
+        mChild.postConflated("key", conflated);
+        assertEquals(0, conflated.refCount());
+    }
+
+    @Test
+    public void shutdownTearsDown() {
+        final boolean[] completed = new boolean[1];
+        mChild.ofType(String.class).subscribe(new Observer<String>() {
+            @Override
+            public void onCompleted() {
+                completed[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(String s) {
+                mReceived.add(s);
+            }
+        });
+        Object subscriber = new Object();
+        Subscription subscription = mChild.ofType(Integer.class).subscribe();
+        mChild.subscribe(subscriber, subscription);
+        mChild.postSticky("sticky");
+        Pooled queued = new Pooled();
+        mChild.post(queued);
+        mChild.postConflated("key", new Pooled());
+
+        mChild.shutdown();
+        assertTrue(mChild.isShutdown());
+        assertTrue(completed[0]);
+        assertTrue(subscription.isUnsubscribed());
+        assertTrue(mChild.isUnsubscribed(subscriber));
+        assertNull(mChild.getStickyEvent(String.class));
+        // the queued events find nothing, the parent has its own references
+        runDrains();
+        assertEquals(0, queued.refCount());
+        assertEquals(0, mReceived.size());
+
+        // a new subscriber completes at once
+        final boolean[] late = new boolean[1];
+        mChild.ofType(String.class).subscribe(new Observer<String>() {
+            @Override
+            public void onCompleted() {
+                late[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(String s) {
+                fail();
+            }
+        });
+        assertTrue(late[0]);
+    }
+
+    @Test
+    public void shutDownChildStillForwards() {
+        becomeMainThread();
+        record(mParent, "parent");
+        record(mChild, "child");
+        mChild.shutdown();
+        Pooled event = new Pooled();
+        mChild.post(event);
+        mChild.postConflated("key", new Forwarded());
+        mChild.post("local");
+        assertEquals(2, mReceived.size());
+        assertEquals("parent Pooled", mReceived.get(0));
+        assertEquals("parent Forwarded", mReceived.get(1));
+        assertEquals(0, event.refCount());
+    }
+
+    @Test
+    public void forwardWithoutParentIsRejected() {
+        try {
+            new RxEventBus.Builder().forward(Forwarded.class).build();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertSame(mParent, mChild.getParent());
+        assertNull(mParent.getParent());
+    }
+
+    private void record(RxEventBus bus, final String name) {
+        bus.ofType(Object.class).subscribe(new Action1<Object>() {
+            @Override
+            public void call(Object event) {
+                mReceived.add(name + " " + event.getClass().getSimpleName());
+            }
+        });
+    }
+
+    private void becomeMainThread() {
+        mParent.post(new Object());
+        runDrains();
+    }
+
+    private void runDrains() {
+        while (!mDrains.isEmpty()) {
+            mDrains.remove(0).run();
+        }
+    }
+
+    static class Forwarded {
+    }
+
+    static final class SubForwarded extends Forwarded {
+    }
+
+    static final class Pooled extends RecyclableEvent {
+    }
+}
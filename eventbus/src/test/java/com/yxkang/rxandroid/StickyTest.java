@@ -0,0 +1,113 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * the sticky events are delivered once to a subscriber of {@link RxEventBus#ofTypeSticky(Class)},
+ * however its subscription races with the posts
+ */
+public class StickyTest {
+
+    /**
+     * the drains are run by the test, the test thread is main thread once it has run one
+     */
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDrains.add(command);
+        }
+    })).build();
+    private final List<Object> mReceived = new ArrayList<>();
+    private final Action1<Object> mReceiver = new Action1<Object>() {
+        @Override
+        public void call(Object event) {
+            mReceived.add(event);
+        }
+    };
+
+    @Test
+    public void subscribeBeforeQueuedStickyIsDelivered() {
+        Object event = new Object();
+        // posted from a background thread, it waits in the queue
+        mBus.postSticky(event);
+        mBus.ofTypeSticky(Object.class).subscribe(mReceiver);
+        assertEquals(0, mReceived.size());
+        assertNull(mBus.getStickyEvent(Object.class));
+
+        runDrains();
+        assertEquals(1, mReceived.size());
+        assertSame(event, mReceived.get(0));
+        assertSame(event, mBus.getStickyEvent(Object.class));
+    }
+
+    @Test
+    public void subscribeAfterStickyIsDelivered() {
+        Object event = new Object();
+        mBus.postSticky(event);
+        runDrains();
+        mBus.ofTypeSticky(Object.class).subscribe(mReceiver);
+        assertEquals(1, mReceived.size());
+        assertSame(event, mReceived.get(0));
+
+        Object next = new Object();
+        mBus.post(next);
+        assertEquals(2, mReceived.size());
+        assertSame(next, mReceived.get(1));
+    }
+
+    @Test
+    public void eventPostedDuringReplayIsNotLost() {
+        mBus.postSticky("sticky");
+        runDrains();
+        final Object posted = new Object();
+        mBus.ofTypeSticky(Object.class).subscribe(new Action1<Object>() {
+            @Override
+            public void call(Object event) {
+                mReceived.add(event);
+                if (event == "sticky") {
+                    // another thread may post at the same time
+                    mBus.post(posted, false);
+                }
+            }
+        });
+        assertEquals(2, mReceived.size());
+        assertSame("sticky", mReceived.get(0));
+        assertSame(posted, mReceived.get(1));
+    }
+
+    @Test
+    public void stickyDeliveredDuringReplayIsReceivedOnce() {
+        final Object second = new Object();
+        mBus.postSticky("first");
+        runDrains();
+        mBus.ofTypeSticky(Object.class).subscribe(new Action1<Object>() {
+            @Override
+            public void call(Object event) {
+                mReceived.add(event);
+                if (event == "first") {
+                    // it is cached and delivered live while the cache is replayed
+                    mBus.postSticky(second);
+                }
+            }
+        });
+        assertEquals(2, mReceived.size());
+        assertSame(second, mReceived.get(1));
+    }
+
+    private void runDrains() {
+        while (!mDrains.isEmpty()) {
+            mDrains.remove(0).run();
+        }
+    }
+}
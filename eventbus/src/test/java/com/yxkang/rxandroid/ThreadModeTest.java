@@ -0,0 +1,247 @@
+package com.yxkang.rxandroid;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.functions.Action1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * every thread mode calls the handler in its thread, and a subscription is called by one thread at a time
+ * in the order of the events
+ */
+public class ThreadModeTest {
+
+    private static final int THREADS = 4;
+    private static final int EVENTS = 2000;
+
+    /**
+     * the drains are run by the test, the test thread is main thread once it has run one
+     */
+    private final List<Runnable> mDrains = new ArrayList<>();
+    private final RxEventBus mBus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            synchronized (mDrains) {
+                mDrains.add(command);
+            }
+        }
+    })).build();
+    private final List<Thread> mThreads = new ArrayList<>();
+    private final Action1<Object> mRecorder = new Action1<Object>() {
+        @Override
+        public void call(Object event) {
+            synchronized (mThreads) {
+                mThreads.add(Thread.currentThread());
+            }
+        }
+    };
+
+    @After
+    public void tearDown() {
+        mBus.shutdown();
+    }
+
+    @Test
+    public void postingCallsInDeliveringThread() throws InterruptedException {
+        mBus.ofType(Event.class, ThreadMode.POSTING).subscribe(mRecorder);
+        Thread poster = postInBackground(new Event(0));
+        assertEquals(1, mThreads.size());
+        assertSame(poster, mThreads.get(0));
+    }
+
+    @Test
+    public void mainQueuesFromBackgroundOnly() throws InterruptedException {
+        becomeMainThread();
+        mBus.ofType(Event.class, ThreadMode.MAIN).subscribe(mRecorder);
+        postInBackground(new Event(0));
+        assertEquals(0, mThreads.size());
+        runDrains();
+        assertEquals(1, mThreads.size());
+        assertSame(Thread.currentThread(), mThreads.get(0));
+
+        mBus.post(new Event(1), false);
+        assertEquals(2, mThreads.size());
+        assertSame(Thread.currentThread(), mThreads.get(1));
+    }
+
+    @Test
+    public void mainOrderedAlwaysQueues() {
+        becomeMainThread();
+        mBus.ofType(Event.class, ThreadMode.MAIN_ORDERED).subscribe(mRecorder);
+        mBus.post(new Event(0), false);
+        assertEquals(0, mThreads.size());
+        runDrains();
+        assertEquals(1, mThreads.size());
+        assertSame(Thread.currentThread(), mThreads.get(0));
+    }
+
+    @Test
+    public void backgroundIsSerialInOrder() throws InterruptedException {
+        becomeMainThread();
+        Serial serial = new Serial(THREADS * EVENTS + 1);
+        mBus.ofType(Event.class, ThreadMode.BACKGROUND).subscribe(serial);
+        // from main thread and from other threads, which used to call the handler at once
+        mBus.post(new Event(-1, 0), false);
+        postConcurrently();
+        serial.await();
+        serial.assertSerialInOrder();
+        assertTrue(serial.mThreadName.startsWith("RxEventBus-background"));
+    }
+
+    @Test
+    public void asyncIsSerialInOrder() throws InterruptedException {
+        Serial serial = new Serial(THREADS * EVENTS);
+        mBus.ofType(Event.class, ThreadMode.ASYNC).subscribe(serial);
+        postConcurrently();
+        serial.await();
+        serial.assertSerialInOrder();
+        assertTrue(serial.mThreadName.startsWith("RxEventBus-async"));
+    }
+
+    @Test
+    public void asyncSubscriptionsRunInParallel() throws InterruptedException {
+        final CountDownLatch second = new CountDownLatch(1);
+        final CountDownLatch first = new CountDownLatch(1);
+        mBus.ofType(Event.class, ThreadMode.ASYNC).subscribe(new Action1<Event>() {
+            @Override
+            public void call(Event event) {
+                try {
+                    // blocks its lane until the other subscription has run
+                    if (second.await(10, TimeUnit.SECONDS)) {
+                        first.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        mBus.ofType(Event.class, ThreadMode.ASYNC).subscribe(new Action1<Event>() {
+            @Override
+            public void call(Event event) {
+                second.countDown();
+            }
+        });
+        mBus.post(new Event(0), false);
+        assertTrue(first.await(10, TimeUnit.SECONDS));
+    }
+
+    private void becomeMainThread() {
+        mBus.post(new Object());
+        runDrains();
+    }
+
+    private Thread postInBackground(final Event event) throws InterruptedException {
+        Thread poster = new Thread() {
+            @Override
+            public void run() {
+                mBus.post(event, false);
+            }
+        };
+        poster.start();
+        poster.join();
+        return poster;
+    }
+
+    /**
+     * every thread posts its events in the thread, in the order of their values
+     */
+    private void postConcurrently() throws InterruptedException {
+        Thread[] posters = new Thread[THREADS];
+        for (int i = 0; i < posters.length; i++) {
+            final int poster = i;
+            posters[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < EVENTS; j++) {
+                        mBus.post(new Event(poster, j), false);
+                    }
+                }
+            };
+            posters[i].start();
+        }
+        for (Thread poster : posters) {
+            poster.join();
+        }
+    }
+
+    private void runDrains() {
+        while (true) {
+            Runnable drain;
+            synchronized (mDrains) {
+                if (mDrains.isEmpty()) {
+                    return;
+                }
+                drain = mDrains.remove(0);
+            }
+            drain.run();
+        }
+    }
+
+    static final class Event {
+
+        final int mPoster;
+        final int mValue;
+
+        Event(int value) {
+            this(-1, value);
+        }
+
+        Event(int poster, int value) {
+            mPoster = poster;
+            mValue = value;
+        }
+    }
+
+    /**
+     * check that the handler is never entered twice at once, and that the events of a poster keep their order
+     */
+    static final class Serial implements Action1<Event> {
+
+        private final AtomicInteger mActive = new AtomicInteger();
+        private final AtomicInteger mOverlaps = new AtomicInteger();
+        private final AtomicInteger mDisorders = new AtomicInteger();
+        private final int[] mNext = new int[THREADS];
+        private final CountDownLatch mDone;
+        volatile String mThreadName;
+
+        Serial(int count) {
+            mDone = new CountDownLatch(count);
+        }
+
+        @Override
+        public void call(Event event) {
+            if (mActive.incrementAndGet() != 1) {
+                mOverlaps.incrementAndGet();
+            }
+            if (event.mPoster >= 0) {
+                if (mNext[event.mPoster] != event.mValue) {
+                    mDisorders.incrementAndGet();
+                }
+                mNext[event.mPoster] = event.mValue + 1;
+            }
+            mThreadName = Thread.currentThread().getName();
+            mActive.decrementAndGet();
+            mDone.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(mDone.await(10, TimeUnit.SECONDS));
+        }
+
+        void assertSerialInOrder() {
+            assertEquals(0, mOverlaps.get());
+            assertEquals(0, mDisorders.get());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import rx.Subscription;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the periodic timeouts keep their period whatever its rounds of the wheel, a huge delay doesn't wrap around,
+ * a throwing timeout doesn't stop the timer thread, and a cancelled delayed post releases its event
+ */
+public class TimerWheelTest {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int WHEEL_SIZE = 8;
+    private static final int PERIODS = 4;
+
+    private final TimerWheel mWheel = new TimerWheel(TICK_NANOS, WHEEL_SIZE, "TimerWheelTest");
+
+    @Test
+    public void periodOfWholeRotations() throws InterruptedException {
+        assertPeriod(WHEEL_SIZE);
+        assertPeriod(2 * WHEEL_SIZE);
+    }
+
+    @Test
+    public void periodAroundRotation() throws InterruptedException {
+        assertPeriod(WHEEL_SIZE - 1);
+        assertPeriod(WHEEL_SIZE + 1);
+    }
+
+    @Test
+    public void throwingTimeoutDoesNotStopTimer() throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        mWheel.schedule(new TimerWheel.Timeout() {
+            @Override
+            void run() {
+                throw new IllegalStateException("expected");
+            }
+        }, 0, 0);
+        mWheel.schedule(new TimerWheel.Timeout() {
+            @Override
+            void run() {
+                ran.countDown();
+            }
+        }, 2 * TICK_NANOS, 0);
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledDelayedPostReleasesEvent() {
+        RxEventBus bus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        })).build();
+        Delayed event = new Delayed();
+        Subscription subscription = bus.postDelayed(event, 1, TimeUnit.HOURS);
+        assertEquals(1, event.refCount());
+        subscription.unsubscribe();
+        assertEquals(0, event.refCount());
+        subscription.unsubscribe();
+        assertEquals(0, event.refCount());
+    }
+
+    @Test
+    public void hugeDelayDoesNotWrapAround() throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        final CountDownLatch periodic = new CountDownLatch(2);
+        TimerWheel.Timeout never = new TimerWheel.Timeout() {
+            @Override
+            void run() {
+                ran.countDown();
+            }
+        };
+        TimerWheel.Timeout once = new TimerWheel.Timeout() {
+            @Override
+            void run() {
+                periodic.countDown();
+            }
+        };
+        mWheel.schedule(never, Long.MAX_VALUE, 0);
+        mWheel.schedule(once, 0, Long.MAX_VALUE);
+        try {
+            // a few rotations of the wheel
+            assertFalse(ran.await(4 * WHEEL_SIZE * TICK_NANOS, TimeUnit.NANOSECONDS));
+            assertEquals(1, periodic.getCount());
+        } finally {
+            never.unsubscribe();
+            once.unsubscribe();
+        }
+
+        final AtomicBoolean dispatched = new AtomicBoolean();
+        RxEventBus bus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                dispatched.set(true);
+            }
+        })).build();
+        Delayed event = new Delayed();
+        Subscription subscription = bus.postDelayed(event, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        Thread.sleep(50);
+        assertFalse(dispatched.get());
+        // still scheduled, so it is released by the cancellation
+        subscription.unsubscribe();
+        assertEquals(0, event.refCount());
+    }
+
+    /**
+     * the runs follow the deadlines, so the late wake ups of the timer thread don't add up,
+     * while a period run a rotation late is {@link #WHEEL_SIZE} ticks longer every time
+     */
+    private void assertPeriod(int periodTicks) throws InterruptedException {
+        final long[] times = new long[PERIODS + 1];
+        final CountDownLatch done = new CountDownLatch(times.length);
+        TimerWheel.Timeout timeout = new TimerWheel.Timeout() {
+            int mRuns;
+
+            @Override
+            void run() {
+                if (mRuns < times.length) {
+                    times[mRuns++] = System.nanoTime();
+                    done.countDown();
+                }
+            }
+        };
+        long periodNanos = periodTicks * TICK_NANOS;
+        mWheel.schedule(timeout, 0, periodNanos);
+        try {
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            timeout.unsubscribe();
+        }
+        long elapsed = times[PERIODS] - times[0];
+        long tolerance = PERIODS * WHEEL_SIZE * TICK_NANOS / 2;
+        assertTrue("period of " + periodTicks + " ticks took " + elapsed / PERIODS + " ns",
+                Math.abs(elapsed - PERIODS * periodNanos) < tolerance);
+    }
+
+    static final class Delayed extends RecyclableEvent {
+    }
+}
@@ -0,0 +1,55 @@
+package com.yxkang.rxandroid;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.functions.Action2;
+import rx.subjects.Subject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * the subscribers of a bus in weak reference mode are garbage collected and unsubscribed without any post
+ */
+public class WeakReferenceTest {
+
+    private final AtomicInteger mDelivered = new AtomicInteger();
+
+    @Test(timeout = 30000)
+    public void collectedSubscriberIsUnsubscribed() throws Exception {
+        RxEventBus bus = new RxEventBus.Builder().dispatcher(new ExecutorDispatcher()).weakReferences(true).build();
+        subscribe(bus, new Object());
+
+        while (bus.getReclaimedSubscriberCount() == 0) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertFalse(((Subject<?, ?>) bus.ofType(String.class)).hasObservers());
+        bus.post("event", false);
+        assertEquals(0, mDelivered.get());
+    }
+
+    @Test
+    public void strongSubscriberIsKept() throws Exception {
+        RxEventBus bus = new RxEventBus(new ExecutorDispatcher());
+        Object subscriber = new Object();
+        subscribe(bus, subscriber);
+        System.gc();
+        Thread.sleep(100);
+        bus.post("event", false);
+        assertEquals(1, mDelivered.get());
+        assertEquals(0, bus.getReclaimedSubscriberCount());
+        assertFalse(bus.isUnsubscribed(subscriber));
+    }
+
+    private void subscribe(RxEventBus bus, Object subscriber) {
+        bus.subscribe(subscriber, bus.ofType(String.class), new Action2<Object, String>() {
+            @Override
+            public void call(Object subscriber, String event) {
+                mDelivered.incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package com.yxkang.rxandroid.flowable;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.FlowableOperator;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * <h1>DropNewestOperator</h1>
+ * buffer the events up to the capacity, and drop the events which arrive while the buffer is full, using in
+ * {@link OverflowStrategy#DROP_NEWEST}. the buffered events are kept, unlike
+ * {@link io.reactivex.BackpressureOverflowStrategy#DROP_LATEST} which drops the newest buffered event instead
+ *
+ * @param <T> data model
+ */
+final class DropNewestOperator<T> implements FlowableOperator<T, T> {
+
+    private final int mCapacity;
+
+    DropNewestOperator(int capacity) {
+        mCapacity = capacity;
+    }
+
+    @Override
+    public Subscriber<? super T> apply(Subscriber<? super T> child) {
+        return new DropNewestSubscriber<>(child, mCapacity);
+    }
+
+    /**
+     * the upstream is requested unbounded, the events are emitted in a drain loop whose work in progress counter
+     * is this object, so the child is called by one thread at a time
+     */
+    static final class DropNewestSubscriber<T> extends AtomicInteger implements Subscriber<T>, Subscription {
+
+        private final Subscriber<? super T> mChild;
+        private final int mCapacity;
+        /**
+         * guarded by itself
+         */
+        private final Queue<T> mQueue = new ArrayDeque<>();
+        private final AtomicLong mRequested = new AtomicLong();
+        private Subscription mUpstream;
+        private volatile boolean mCancelled;
+        private volatile boolean mDone;
+        private Throwable mError;
+
+        DropNewestSubscriber(Subscriber<? super T> child, int capacity) {
+            mChild = child;
+            mCapacity = capacity;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            if (mUpstream != null) {
+                s.cancel();
+                return;
+            }
+            mUpstream = s;
+            mChild.onSubscribe(this);
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (mDone) {
+                return;
+            }
+            synchronized (mQueue) {
+                if (mQueue.size() >= mCapacity) {
+                    return;
+                }
+                mQueue.offer(t);
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            mError = t;
+            mDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            mDone = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                RxJavaPlugins.onError(new IllegalArgumentException("n > 0 required but it was " + n));
+                return;
+            }
+            while (true) {
+                long r = mRequested.get();
+                long u = r + n < 0 ? Long.MAX_VALUE : r + n;
+                if (mRequested.compareAndSet(r, u)) {
+                    break;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+            mUpstream.cancel();
+            if (getAndIncrement() == 0) {
+                clear();
+            }
+        }
+
+        private void drain() {
+            if (getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            while (true) {
+                long requested = mRequested.get();
+                long emitted = 0;
+                while (true) {
+                    if (mCancelled) {
+                        clear();
+                        return;
+                    }
+                    boolean done = mDone;
+                    if (done && mError != null) {
+                        clear();
+                        mChild.onError(mError);
+                        return;
+                    }
+                    T t = null;
+                    if (emitted != requested) {
+                        synchronized (mQueue) {
+                            t = mQueue.poll();
+                        }
+                    }
+                    if (t == null) {
+                        if (done && isEmpty()) {
+                            mChild.onComplete();
+                            return;
+                        }
+                        break;
+                    }
+                    mChild.onNext(t);
+                    emitted++;
+                }
+                if (emitted != 0 && requested != Long.MAX_VALUE) {
+                    mRequested.addAndGet(-emitted);
+                }
+                missed = addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            synchronized (mQueue) {
+                return mQueue.isEmpty();
+            }
+        }
+
+        private void clear() {
+            synchronized (mQueue) {
+                mQueue.clear();
+            }
+        }
+    }
+}
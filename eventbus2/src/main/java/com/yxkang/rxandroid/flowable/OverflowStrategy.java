@@ -0,0 +1,31 @@
+package com.yxkang.rxandroid.flowable;
+
+import io.reactivex.exceptions.MissingBackpressureException;
+
+/**
+ * <h1>OverflowStrategy</h1>
+ * what a subscription of {@link RxFlowableBus} does when the events are posted faster than it consumes them
+ */
+public enum OverflowStrategy {
+
+    /**
+     * buffer the events up to the capacity, signal a {@link MissingBackpressureException} when the buffer is full
+     */
+    BUFFER,
+
+    /**
+     * buffer the events up to the capacity, drop the oldest buffered event when the buffer is full
+     */
+    DROP_OLDEST,
+
+    /**
+     * buffer the events up to the capacity, drop the newly posted event when the buffer is full,
+     * the buffered events are kept
+     */
+    DROP_NEWEST,
+
+    /**
+     * only keep the latest undelivered event, the capacity is ignored
+     */
+    LATEST
+}
@@ -0,0 +1,172 @@
+package com.yxkang.rxandroid.flowable;
+
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+/**
+ * <h1>RxFlowableBus</h1>
+ * {@code RxFlowableBus} is an EventBus based on {@code RxJava 2} {@link Flowable}, every subscription chooses
+ * its own {@link OverflowStrategy}, so a slow subscriber never buffers more than its capacity.
+ * <h1>Usage</h1>
+ * <p>Here is an example of usage:</p>
+ * <pre class="prettyprint">
+ * Disposable disposable = RxFlowableBus.getInstance().ofType(ProgressEvent.class, OverflowStrategy.LATEST, 0)
+ * &nbsp;&nbsp;&nbsp;&nbsp;.observeOn(AndroidSchedulers.mainThread())
+ * &nbsp;&nbsp;&nbsp;&nbsp;.subscribe(new Consumer&lt;ProgressEvent&gt;() {
+ * &nbsp;&nbsp;<code>@Override</code>
+ * &nbsp;&nbsp;public void accept(ProgressEvent progressEvent) {
+ * &nbsp;&nbsp;&nbsp;&nbsp;// do something on the progressEvent
+ * &nbsp;&nbsp;}
+ * });
+ * // don't forget to subscribe the disposable for current class
+ * RxFlowableBus.getInstance().subscribe(this, disposable);
+ * <p/>
+ * RxFlowableBus.getInstance().post(new ProgressEvent(50));
+ * </pre>
+ * <p>Avoid memory leak, you should add the follow statement when you don't want to receive any events:</p>
+ * <pre class="prettyprint">
+ * RxFlowableBus.getInstance().unsubscribe(this);
+ * </pre>
+ * <h1>Post Event</h1>
+ * <p>The event is posted in the current thread, use {@link Flowable#observeOn} to receive it in another thread</p>
+ */
+@SuppressWarnings("unused")
+public class RxFlowableBus {
+
+    private static final String TAG = RxFlowableBus.class.getSimpleName();
+    private static volatile RxFlowableBus sRxFlowableBus;
+
+    private final ConcurrentMap<Object, CompositeDisposable> mMap = new ConcurrentHashMap<>();
+    private final FlowableProcessor<Object> mProcessor;
+
+    private RxFlowableBus() {
+        mProcessor = PublishProcessor.create().toSerialized();
+    }
+
+    public static RxFlowableBus getInstance() {
+        if (sRxFlowableBus == null) {
+            synchronized (RxFlowableBus.class) {
+                if (sRxFlowableBus == null) {
+                    sRxFlowableBus = new RxFlowableBus();
+                }
+            }
+        }
+        return sRxFlowableBus;
+    }
+
+    /**
+     * post an event to event bus in current thread
+     *
+     * @param event the event, {@code RxJava 2} doesn't permit {@code null}
+     */
+    public final void post(Object event) {
+        if (event == null) {
+            throw new NullPointerException("event == null");
+        }
+        mProcessor.onNext(event);
+    }
+
+    /**
+     * transform the <tt>RxFlowableBus</tt> to <tt>Flowable</tt>, the events are buffered up to
+     * {@link Flowable#bufferSize()} with {@link OverflowStrategy#BUFFER}
+     *
+     * @return the <tt>Flowable</tt>
+     * @see #ofType(Class, OverflowStrategy, int)
+     */
+    public Flowable<Object> toFlowable() {
+        return ofType(Object.class);
+    }
+
+    /**
+     * filter the event type, the events are buffered up to {@link Flowable#bufferSize()} with {@link OverflowStrategy#BUFFER}
+     *
+     * @param eventType eventType
+     * @param <T>       data model
+     * @return {@link Flowable}
+     * @see #ofType(Class, OverflowStrategy, int)
+     */
+    public <T> Flowable<T> ofType(Class<T> eventType) {
+        return ofType(eventType, OverflowStrategy.BUFFER, Flowable.bufferSize());
+    }
+
+    /**
+     * filter the event type, you should call this method before subscribe an event
+     *
+     * @param eventType eventType
+     * @param strategy  what to do when the subscriber can't keep up with the posted events
+     * @param capacity  the max count of the buffered events, ignored by {@link OverflowStrategy#LATEST}
+     * @param <T>       data model
+     * @return {@link Flowable}
+     */
+    public <T> Flowable<T> ofType(Class<T> eventType, OverflowStrategy strategy, int capacity) {
+        Flowable<T> flowable = mProcessor.ofType(eventType);
+        switch (strategy) {
+            case BUFFER:
+                return flowable.onBackpressureBuffer(capacity);
+            case DROP_OLDEST:
+                return flowable.onBackpressureBuffer(capacity, null, BackpressureOverflowStrategy.DROP_OLDEST);
+            case DROP_NEWEST:
+                return flowable.lift(new DropNewestOperator<T>(capacity));
+            case LATEST:
+                return flowable.onBackpressureLatest();
+            default:
+                throw new IllegalArgumentException("unknown strategy: " + strategy);
+        }
+    }
+
+    /**
+     * keep the disposable for subscriber after called {@link Flowable#subscribe()},
+     * this method can be called many times as soon as you subscribe an event,
+     * but don't forget to call {@link #unsubscribe(Object)} once you don't want to receive any events
+     *
+     * @param subscriber subscriber
+     * @param disposable disposable
+     * @see #unsubscribe(Object)
+     */
+    public final void subscribe(Object subscriber, Disposable disposable) {
+        CompositeDisposable list = mMap.get(subscriber);
+        if (list == null) {
+            CompositeDisposable created = new CompositeDisposable(disposable);
+            list = mMap.putIfAbsent(subscriber, created);
+            if (list == null) {
+                Log.i(TAG, "subscribe: " + subscriber.getClass());
+                return;
+            }
+        }
+        list.add(disposable);
+    }
+
+    /**
+     * unsubscribe all events, avoiding memory leak
+     *
+     * @param subscriber subscriber
+     * @see #subscribe(Object, Disposable)
+     */
+    public final void unsubscribe(Object subscriber) {
+        CompositeDisposable list = mMap.remove(subscriber);
+        if (list != null) {
+            list.dispose();
+            Log.i(TAG, "unsubscribe: " + subscriber.getClass());
+        }
+    }
+
+    /**
+     * indicates whether this Subscriber has disposed its list of disposables.
+     *
+     * @param subscriber subscriber
+     * @return {@code true} if this Subscriber has disposed its disposables, {@code false} otherwise
+     */
+    public final boolean isUnsubscribed(Object subscriber) {
+        CompositeDisposable list = mMap.get(subscriber);
+        return list == null || list.isDisposed();
+    }
+}
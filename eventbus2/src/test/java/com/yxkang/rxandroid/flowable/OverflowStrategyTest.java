@@ -0,0 +1,127 @@
+package com.yxkang.rxandroid.flowable;
+
+import org.junit.Test;
+
+import io.reactivex.exceptions.MissingBackpressureException;
+import io.reactivex.functions.Function;
+import io.reactivex.subscribers.TestSubscriber;
+
+/**
+ * a subscription which requests nothing while 20 events are posted keeps what its strategy allows
+ */
+public class OverflowStrategyTest {
+
+    private static final int CAPACITY = 4;
+    private static final int POSTS = 20;
+
+    private final RxFlowableBus mBus = RxFlowableBus.getInstance();
+
+    @Test
+    public void bufferSignalsOverflow() {
+        TestSubscriber<Buffered> subscriber = mBus.ofType(Buffered.class, OverflowStrategy.BUFFER, CAPACITY).test(0);
+        for (int i = 0; i < POSTS; i++) {
+            mBus.post(new Buffered(i));
+        }
+        subscriber.assertError(MissingBackpressureException.class);
+    }
+
+    @Test
+    public void bufferKeepsEventsWithinCapacity() {
+        TestSubscriber<Buffered> subscriber = mBus.ofType(Buffered.class, OverflowStrategy.BUFFER, CAPACITY).test(0);
+        for (int i = 0; i < CAPACITY; i++) {
+            mBus.post(new Buffered(i));
+        }
+        subscriber.assertNoValues();
+        subscriber.request(POSTS);
+        subscriber.assertValueCount(CAPACITY).assertNoErrors();
+    }
+
+    @Test
+    public void dropOldestKeepsNewestEvents() {
+        TestSubscriber<Integer> subscriber = values(DropOldest.class, OverflowStrategy.DROP_OLDEST);
+        for (int i = 0; i < POSTS; i++) {
+            mBus.post(new DropOldest(i));
+        }
+        subscriber.request(POSTS);
+        subscriber.assertValues(16, 17, 18, 19).assertNoErrors();
+    }
+
+    @Test
+    public void dropNewestKeepsBufferedEvents() {
+        TestSubscriber<Integer> subscriber = values(DropNewest.class, OverflowStrategy.DROP_NEWEST);
+        for (int i = 0; i < POSTS; i++) {
+            mBus.post(new DropNewest(i));
+        }
+        subscriber.request(2);
+        subscriber.assertValues(0, 1);
+        // the buffer has room for 2 events again
+        for (int i = POSTS; i < POSTS + 3; i++) {
+            mBus.post(new DropNewest(i));
+        }
+        subscriber.request(POSTS);
+        subscriber.assertValues(0, 1, 2, 3, 20, 21).assertNoErrors();
+
+        // requested ahead, nothing is dropped
+        mBus.post(new DropNewest(30));
+        subscriber.assertValues(0, 1, 2, 3, 20, 21, 30);
+    }
+
+    @Test
+    public void latestKeepsLastEvent() {
+        TestSubscriber<Integer> subscriber = values(Latest.class, OverflowStrategy.LATEST);
+        for (int i = 0; i < POSTS; i++) {
+            mBus.post(new Latest(i));
+        }
+        subscriber.request(POSTS);
+        subscriber.assertValues(19).assertNoErrors();
+    }
+
+    private <T extends Numbered> TestSubscriber<Integer> values(Class<T> eventType, OverflowStrategy strategy) {
+        return mBus.ofType(eventType, strategy, CAPACITY).map(new Function<T, Integer>() {
+            @Override
+            public Integer apply(T event) {
+                return event.mValue;
+            }
+        }).test(0);
+    }
+
+    /**
+     * every test has an event type of its own, the bus is a singleton
+     */
+    abstract static class Numbered {
+
+        final int mValue;
+
+        Numbered(int value) {
+            mValue = value;
+        }
+    }
+
+    static final class Buffered extends Numbered {
+
+        Buffered(int value) {
+            super(value);
+        }
+    }
+
+    static final class DropOldest extends Numbered {
+
+        DropOldest(int value) {
+            super(value);
+        }
+    }
+
+    static final class DropNewest extends Numbered {
+
+        DropNewest(int value) {
+            super(value);
+        }
+    }
+
+    static final class Latest extends Numbered {
+
+        Latest(int value) {
+            super(value);
+        }
+    }
+}